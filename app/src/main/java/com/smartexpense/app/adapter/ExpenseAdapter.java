@@ -1,26 +1,66 @@
 package com.smartexpense.app.adapter;
 
-import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 import com.smartexpense.app.R;
+import com.smartexpense.app.database.CategoryRegistry;
 import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.ExpensePage;
+import com.smartexpense.app.utils.AppExecutors;
 import com.smartexpense.app.utils.FormatUtils;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> {
 
+    // Request the next page when a row this close to the end is bound
+    private static final int PREFETCH_DISTANCE = 10;
+    // Pages further than this from the bound page are dropped to free memory
+    private static final int MAX_RETAINED_PAGE_DISTANCE = 3;
+
+    // Rows of dropped pages are kept as null so positions never shift
     private List<Expense> expenses;
+    // Id of every row, kept when its page is dropped so stable ids never change
+    private List<Long> itemIds;
     private OnExpenseClickListener listener;
+    private CategoryRegistry categoryRegistry;
+
+    // Paging state
+    private PageLoader pageLoader;
+    private int pageSize;
+    private boolean paging;
+    private boolean lastPageLoaded;
+    private int generation;
+    private List<Long> pageStartDates = new ArrayList<>();
+    private List<Integer> pageStartIds = new ArrayList<>();
+    private Set<Integer> loadingPages = new HashSet<>();
+    private Set<Integer> residentPages = new HashSet<>();
+    // The rows shown belong to the previous reset and are replaced by the first page
+    private boolean replacingPages;
+    // Page of the last bound row, distant pages are dropped after the bind pass
+    private int boundPageIndex;
+    private boolean dropPending;
+
+    // Diff state, rows shown are only replaced on the main thread once a diff is done
+    private final Executor diffExecutor = AppExecutors.getInstance().reader(AppExecutors.Priority.INTERACTIVE);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean diffPending;
 
     public interface OnExpenseClickListener {
         void onExpenseClick(Expense expense);
@@ -28,14 +68,183 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
         void onDeleteClick(Expense expense);
     }
 
-    public ExpenseAdapter(OnExpenseClickListener listener) {
+    public interface PageLoader {
+        // Load the page starting after (afterDate, afterId) and hand it back to submitPage()
+        void loadPage(int generation, int pageIndex, long afterDate, int afterId);
+    }
+
+    public ExpenseAdapter(OnExpenseClickListener listener, CategoryRegistry categoryRegistry) {
         this.expenses = new ArrayList<>();
+        this.itemIds = new ArrayList<>();
         this.listener = listener;
+        this.categoryRegistry = categoryRegistry;
+        setHasStableIds(true);
     }
 
+    public void setPageLoader(int pageSize, PageLoader pageLoader) {
+        this.pageSize = pageSize;
+        this.pageLoader = pageLoader;
+    }
+
+    // Show a complete list, e.g. search results, and leave paging mode.
+    // Only the rows that differ from what is shown are updated, the diff runs off the main thread.
     public void setExpenses(List<Expense> expenses) {
-        this.expenses = expenses;
-        notifyDataSetChanged();
+        paging = false;
+        replacingPages = false;
+        generation++;
+        loadingPages.clear();
+        residentPages.clear();
+        dispatchDiff(expenses, generation, null);
+    }
+
+    // Start paging again from the newest expense. Rows shown now stay until the first page
+    // arrives and are then diffed against it, so a refresh only touches rows that changed.
+    public void resetPages() {
+        paging = true;
+        generation++;
+        lastPageLoaded = false;
+        // A diff still running belongs to an older generation and will be dropped
+        diffPending = false;
+        replacingPages = !expenses.isEmpty();
+        loadingPages.clear();
+        residentPages.clear();
+        pageStartDates.clear();
+        pageStartIds.clear();
+        pageStartDates.add(ExpensePage.FIRST_PAGE_DATE);
+        pageStartIds.add(ExpensePage.FIRST_PAGE_ID);
+        if (!replacingPages) {
+            expenses = new ArrayList<>();
+            itemIds = new ArrayList<>();
+        }
+        requestPage(0);
+    }
+
+    // Add a loaded page, or refill a page that was dropped earlier
+    public void submitPage(ExpensePage page) {
+        int pageIndex = page.getPageIndex();
+        if (!paging || page.getGeneration() != generation || !loadingPages.remove(pageIndex)) {
+            return;
+        }
+
+        List<Expense> rows = page.getExpenses();
+        int start = pageIndex * pageSize;
+
+        if (replacingPages) {
+            // First page after a reset replaces the old rows, later pages wait for the diff
+            replacingPages = false;
+            lastPageLoaded = page.isLastPage();
+            addPageStart(rows);
+            residentPages.add(pageIndex);
+            int previousSize = expenses.size();
+            int diffGeneration = generation;
+            dispatchDiff(new ArrayList<>(rows), diffGeneration, () -> {
+                // Keep about as many rows as before by loading the next page right away
+                if (!lastPageLoaded && previousSize > rows.size()) {
+                    requestPage(pageStartDates.size() - 1);
+                }
+            });
+        } else if (start < expenses.size()) {
+            int count = Math.min(rows.size(), expenses.size() - start);
+            for (int i = 0; i < count; i++) {
+                expenses.set(start + i, rows.get(i));
+                itemIds.set(start + i, (long) rows.get(i).getId());
+            }
+            residentPages.add(pageIndex);
+            notifyItemRangeChanged(start, count);
+        } else if (start == expenses.size()) {
+            expenses.addAll(rows);
+            for (Expense expense : rows) {
+                itemIds.add((long) expense.getId());
+            }
+            lastPageLoaded = page.isLastPage();
+            if (!rows.isEmpty()) {
+                addPageStart(rows);
+                residentPages.add(pageIndex);
+                notifyItemRangeInserted(start, rows.size());
+            }
+        }
+    }
+
+    private void addPageStart(List<Expense> rows) {
+        if (!rows.isEmpty()) {
+            Expense last = rows.get(rows.size() - 1);
+            pageStartDates.add(last.getDate());
+            pageStartIds.add(last.getId());
+        }
+    }
+
+    // Diff the shown rows against newExpenses in the background and dispatch only the changes.
+    // Dropped if another list or reset comes in first.
+    private void dispatchDiff(List<Expense> newExpenses, int diffGeneration, Runnable onDispatched) {
+        List<Expense> oldExpenses = new ArrayList<>(expenses);
+        diffPending = true;
+        diffExecutor.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new ExpenseDiffCallback(oldExpenses, newExpenses));
+            mainHandler.post(() -> {
+                if (diffGeneration != generation) {
+                    return;
+                }
+                diffPending = false;
+                expenses = newExpenses;
+                itemIds = new ArrayList<>(newExpenses.size());
+                for (Expense expense : newExpenses) {
+                    itemIds.add((long) expense.getId());
+                }
+                result.dispatchUpdatesTo(this);
+                if (onDispatched != null) {
+                    onDispatched.run();
+                }
+            });
+        });
+    }
+
+    private void requestPage(int pageIndex) {
+        if (pageLoader == null || diffPending || pageIndex >= pageStartDates.size() || !loadingPages.add(pageIndex)) {
+            return;
+        }
+        pageLoader.loadPage(generation, pageIndex, pageStartDates.get(pageIndex), pageStartIds.get(pageIndex));
+    }
+
+    private void onPositionBound(int position) {
+        int pageIndex = position / pageSize;
+
+        if (expenses.get(position) == null) {
+            requestPage(pageIndex);
+        }
+
+        if (!lastPageLoaded && position >= expenses.size() - PREFETCH_DISTANCE) {
+            requestPage(pageStartDates.size() - 1);
+        }
+
+        // RecyclerView does not allow change notifications while it binds, so drop pages afterwards
+        boundPageIndex = pageIndex;
+        if (!dropPending) {
+            dropPending = true;
+            mainHandler.post(this::dropDistantPages);
+        }
+    }
+
+    // Rows of pages far from the last bound row become null and are reloaded if scrolled back into view
+    private void dropDistantPages() {
+        dropPending = false;
+        if (!paging || diffPending) {
+            return;
+        }
+        Iterator<Integer> iterator = residentPages.iterator();
+        while (iterator.hasNext()) {
+            int resident = iterator.next();
+            if (Math.abs(resident - boundPageIndex) > MAX_RETAINED_PAGE_DISTANCE) {
+                int start = resident * pageSize;
+                int end = Math.min(start + pageSize, expenses.size());
+                for (int i = start; i < end; i++) {
+                    expenses.set(i, null);
+                }
+                iterator.remove();
+                if (end > start) {
+                    notifyItemRangeChanged(start, end - start);
+                }
+            }
+        }
     }
 
     @NonNull
@@ -48,8 +257,16 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
 
     @Override
     public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position) {
+        if (paging && !diffPending) {
+            onPositionBound(position);
+        }
+
         Expense expense = expenses.get(position);
-        holder.bind(expense);
+        if (expense != null) {
+            holder.bind(expense);
+        } else {
+            holder.bindPlaceholder();
+        }
     }
 
     @Override
@@ -57,6 +274,51 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
         return expenses.size();
     }
 
+    // Rows of dropped pages keep the id of the expense they showed
+    @Override
+    public long getItemId(int position) {
+        return itemIds.get(position);
+    }
+
+    // Same row when the ids match, unchanged when every shown field is equal
+    private static class ExpenseDiffCallback extends DiffUtil.Callback {
+        private final List<Expense> oldExpenses;
+        private final List<Expense> newExpenses;
+
+        ExpenseDiffCallback(List<Expense> oldExpenses, List<Expense> newExpenses) {
+            this.oldExpenses = oldExpenses;
+            this.newExpenses = newExpenses;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldExpenses.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newExpenses.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            Expense oldExpense = oldExpenses.get(oldPosition);
+            Expense newExpense = newExpenses.get(newPosition);
+            return oldExpense != null && newExpense != null && oldExpense.getId() == newExpense.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            Expense oldExpense = oldExpenses.get(oldPosition);
+            Expense newExpense = newExpenses.get(newPosition);
+            return Objects.equals(oldExpense.getAmount(), newExpense.getAmount())
+                && oldExpense.getCategoryId() == newExpense.getCategoryId()
+                && Objects.equals(oldExpense.getCategory(), newExpense.getCategory())
+                && Objects.equals(oldExpense.getDescription(), newExpense.getDescription())
+                && oldExpense.getDate() == newExpense.getDate();
+        }
+    }
+
     class ExpenseViewHolder extends RecyclerView.ViewHolder {
 
         private View categoryIndicator;
@@ -87,9 +349,8 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
             dateText.setText(FormatUtils.formatDate(expense.getDate()));
             amountText.setText(FormatUtils.formatCurrency(expense.getAmount()));
 
-            // Set category indicator color
-            int color = getCategoryColor(expense.getCategory());
-            categoryIndicator.setBackgroundColor(color);
+            // Set category indicator color, stored with the category
+            categoryIndicator.setBackgroundColor(categoryRegistry.getColor(expense.getCategoryId()));
 
             // Item click to expand/collapse actions
             itemView.setOnClickListener(v -> {
@@ -115,20 +376,14 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
             });
         }
 
-        private int getCategoryColor(String category) {
-            switch (category) {
-                case "Food":
-                    return Color.parseColor("#FF6384");
-                case "Transport":
-                    return Color.parseColor("#36A2EB");
-                case "Shopping":
-                    return Color.parseColor("#FFCE56");
-                case "Bills":
-                    return Color.parseColor("#4BC0C0");
-                case "Other":
-                default:
-                    return Color.parseColor("#9966FF");
-            }
+        // Blank row shown while a dropped page is reloaded
+        public void bindPlaceholder() {
+            descriptionText.setText(null);
+            categoryText.setText(null);
+            dateText.setText(null);
+            amountText.setText(null);
+            actionButtonsLayout.setVisibility(View.GONE);
+            itemView.setOnClickListener(null);
         }
     }
 }
@@ -0,0 +1,255 @@
+package com.smartexpense.app.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.smartexpense.app.model.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// In-memory dictionary of the categories table, loaded on first use. Lookups read an immutable
+// snapshot without locking; the lock is only held to swap snapshots and never around database
+// work, so it cannot be part of a wait cycle with a transaction on the shared connection.
+public class CategoryRegistry {
+
+    // Ids of the built-in categories, fixed by seed()
+    public static final int FOOD_ID = 1;
+    public static final int TRANSPORT_ID = 2;
+    public static final int SHOPPING_ID = 3;
+    public static final int BILLS_ID = 4;
+    public static final int OTHER_ID = 5;
+
+    private static final String[] BUILT_IN_NAMES = {"Food", "Transport", "Shopping", "Bills", "Other"};
+    private static final int[] BUILT_IN_COLORS = {
+        0xFFFF6384, 0xFF36A2EB, 0xFFFFCE56, 0xFF4BC0C0, 0xFF9966FF
+    };
+
+    // Colors handed to user categories, picked from the name so a category keeps its color
+    private static final int[] USER_COLORS = {
+        0xFFFF9F40, 0xFF8BC34A, 0xFFE91E63, 0xFF00BCD4,
+        0xFF795548, 0xFF607D8B, 0xFFCDDC39, 0xFF3F51B5
+    };
+
+    private final DatabaseHelper dbHelper;
+    private final Object lock = new Object();
+    private volatile Snapshot snapshot;
+
+    CategoryRegistry(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    // Insert the built-in categories with their fixed ids
+    static void seed(SQLiteDatabase db) {
+        for (int i = 0; i < BUILT_IN_NAMES.length; i++) {
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_CATEGORY_ID, i + 1);
+            values.putNull(DatabaseHelper.COLUMN_CATEGORY_USER_ID);
+            values.put(DatabaseHelper.COLUMN_CATEGORY_NAME, BUILT_IN_NAMES[i]);
+            values.put(DatabaseHelper.COLUMN_CATEGORY_COLOR, BUILT_IN_COLORS[i]);
+            db.insertWithOnConflict(DatabaseHelper.TABLE_CATEGORIES, null, values,
+                SQLiteDatabase.CONFLICT_IGNORE);
+        }
+    }
+
+    // Insert a user category unless the user already has one by that name, returns its id or -1
+    static long insertUserCategory(SQLiteDatabase db, int userId, String name) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_CATEGORY_USER_ID, userId);
+        values.put(DatabaseHelper.COLUMN_CATEGORY_NAME, name);
+        values.put(DatabaseHelper.COLUMN_CATEGORY_COLOR, userColor(name));
+        return db.insertWithOnConflict(DatabaseHelper.TABLE_CATEGORIES, null, values,
+            SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    private static int userColor(String name) {
+        return USER_COLORS[Math.floorMod(nameKey(name).hashCode(), USER_COLORS.length)];
+    }
+
+    // Category by id, null if there is none
+    public Category get(int categoryId) {
+        return snapshot().byId.get(categoryId);
+    }
+
+    // Display name of a category, null if there is none
+    public String getName(int categoryId) {
+        Category category = get(categoryId);
+        return category != null ? category.getName() : null;
+    }
+
+    // Color of a category, unknown ids get the color of Other
+    public int getColor(int categoryId) {
+        Category category = get(categoryId);
+        return category != null ? category.getColor() : BUILT_IN_COLORS[OTHER_ID - 1];
+    }
+
+    // Built-in categories in their fixed order followed by the user's own sorted by name
+    public List<Category> getCategories(int userId) {
+        Snapshot current = snapshot();
+        List<Category> categories = new ArrayList<>(current.builtIn);
+        List<Category> own = current.byUser.get(userId);
+        if (own != null) {
+            categories.addAll(own);
+        }
+        return categories;
+    }
+
+    // Id of the category a user means by name ignoring case, built-in first, 0 if there is none
+    public int findId(int userId, String name) {
+        if (name == null) {
+            return 0;
+        }
+        Snapshot current = snapshot();
+        String key = nameKey(name.trim());
+        Integer id = current.builtInIds.get(key);
+        if (id == null) {
+            Map<String, Integer> own = current.userIds.get(userId);
+            id = own != null ? own.get(key) : null;
+        }
+        return id != null ? id : 0;
+    }
+
+    // Id for a name, creating a user category if needed; blank names map to Other.
+    // Call outside any transaction on the shared connection.
+    public int resolveId(int userId, String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return OTHER_ID;
+        }
+        String trimmed = name.trim();
+        int id = findId(userId, trimmed);
+        if (id != 0) {
+            return id;
+        }
+
+        SQLiteDatabase db = dbHelper.getDatabase();
+        long inserted = insertUserCategory(db, userId, trimmed);
+        Category category = inserted != -1 ?
+            new Category((int) inserted, userId, trimmed, userColor(trimmed)) :
+            queryUserCategory(db, userId, trimmed);
+        if (category == null) {
+            return OTHER_ID;
+        }
+
+        synchronized (lock) {
+            snapshot = snapshot.with(category);
+        }
+        if (inserted != -1) {
+            dbHelper.getInvalidationTracker().notifyChanged(
+                new InvalidationTracker.Change(DatabaseHelper.TABLE_CATEGORIES, userId));
+        }
+        return category.getId();
+    }
+
+    // Another thread inserted the same name first
+    private static Category queryUserCategory(SQLiteDatabase db, int userId, String name) {
+        Cursor cursor = db.query(
+            DatabaseHelper.TABLE_CATEGORIES,
+            new String[]{DatabaseHelper.COLUMN_CATEGORY_ID, DatabaseHelper.COLUMN_CATEGORY_NAME,
+                DatabaseHelper.COLUMN_CATEGORY_COLOR},
+            DatabaseHelper.COLUMN_CATEGORY_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_CATEGORY_NAME + " = ?",
+            new String[]{String.valueOf(userId), name},
+            null, null, null
+        );
+        try {
+            return cursor.moveToFirst() ?
+                new Category(cursor.getInt(0), userId, cursor.getString(1), cursor.getInt(2)) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // Load outside the lock, a concurrent loader reads the same rows
+        Snapshot loaded = Snapshot.load(dbHelper.getDatabase());
+        synchronized (lock) {
+            if (snapshot == null) {
+                snapshot = loaded;
+            }
+            return snapshot;
+        }
+    }
+
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // Immutable view of the table, replaced as a whole when a category is added
+    private static final class Snapshot {
+        final Map<Integer, Category> byId;
+        final List<Category> builtIn;
+        final Map<String, Integer> builtInIds;
+        final Map<Integer, List<Category>> byUser;
+        final Map<Integer, Map<String, Integer>> userIds;
+
+        private Snapshot(List<Category> categories) {
+            byId = new HashMap<>();
+            List<Category> shared = new ArrayList<>();
+            builtInIds = new HashMap<>();
+            byUser = new HashMap<>();
+            userIds = new HashMap<>();
+            for (Category category : categories) {
+                byId.put(category.getId(), category);
+                if (category.isBuiltIn()) {
+                    shared.add(category);
+                    builtInIds.put(nameKey(category.getName()), category.getId());
+                    continue;
+                }
+                List<Category> own = byUser.get(category.getUserId());
+                if (own == null) {
+                    own = new ArrayList<>();
+                    byUser.put(category.getUserId(), own);
+                    userIds.put(category.getUserId(), new HashMap<>());
+                }
+                own.add(category);
+                userIds.get(category.getUserId()).put(nameKey(category.getName()), category.getId());
+            }
+            Collections.sort(shared, (a, b) -> Integer.compare(a.getId(), b.getId()));
+            builtIn = Collections.unmodifiableList(shared);
+            for (List<Category> own : byUser.values()) {
+                Collections.sort(own, (a, b) -> a.getName().compareToIgnoreCase(b.getName()));
+            }
+        }
+
+        static Snapshot load(SQLiteDatabase db) {
+            List<Category> categories = new ArrayList<>();
+            Cursor cursor = db.query(
+                DatabaseHelper.TABLE_CATEGORIES,
+                new String[]{
+                    DatabaseHelper.COLUMN_CATEGORY_ID,
+                    DatabaseHelper.COLUMN_CATEGORY_USER_ID,
+                    DatabaseHelper.COLUMN_CATEGORY_NAME,
+                    DatabaseHelper.COLUMN_CATEGORY_COLOR
+                },
+                null, null, null, null, null
+            );
+            try {
+                while (cursor.moveToNext()) {
+                    categories.add(new Category(cursor.getInt(0),
+                        cursor.isNull(1) ? 0 : cursor.getInt(1), cursor.getString(2), cursor.getInt(3)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return new Snapshot(categories);
+        }
+
+        Snapshot with(Category category) {
+            if (byId.containsKey(category.getId())) {
+                return this;
+            }
+            List<Category> categories = new ArrayList<>(byId.values());
+            categories.add(category);
+            return new Snapshot(categories);
+        }
+    }
+}
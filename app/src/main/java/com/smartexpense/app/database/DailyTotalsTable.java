@@ -0,0 +1,177 @@
+package com.smartexpense.app.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.smartexpense.app.utils.CalendarPeriods;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Maintenance of the per-day, per-category expense rollup.
+// Each expense is counted on its local day in the time zone in effect when it was written, so
+// after the zone changes the rollup has to be rebuilt, see ExpenseRepository.
+final class DailyTotalsTable {
+
+    private static final String SQL_UPDATE =
+        "UPDATE " + DatabaseHelper.TABLE_DAILY_TOTALS + " SET " +
+        DatabaseHelper.COLUMN_DAILY_TOTAL + " = " + DatabaseHelper.COLUMN_DAILY_TOTAL + " + ?, " +
+        DatabaseHelper.COLUMN_DAILY_COUNT + " = " + DatabaseHelper.COLUMN_DAILY_COUNT + " + ? WHERE " +
+        DatabaseHelper.COLUMN_DAILY_USER_ID + " = ? AND " +
+        DatabaseHelper.COLUMN_DAILY_DAY + " = ? AND " +
+        DatabaseHelper.COLUMN_DAILY_CATEGORY_ID + " = ?";
+
+    private static final String SQL_INSERT =
+        "INSERT INTO " + DatabaseHelper.TABLE_DAILY_TOTALS + "(" +
+        DatabaseHelper.COLUMN_DAILY_TOTAL + ", " +
+        DatabaseHelper.COLUMN_DAILY_COUNT + ", " +
+        DatabaseHelper.COLUMN_DAILY_USER_ID + ", " +
+        DatabaseHelper.COLUMN_DAILY_DAY + ", " +
+        DatabaseHelper.COLUMN_DAILY_CATEGORY_ID + ") VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_DELETE_EMPTY =
+        "DELETE FROM " + DatabaseHelper.TABLE_DAILY_TOTALS + " WHERE " +
+        DatabaseHelper.COLUMN_DAILY_USER_ID + " = ? AND " +
+        DatabaseHelper.COLUMN_DAILY_DAY + " = ? AND " +
+        DatabaseHelper.COLUMN_DAILY_CATEGORY_ID + " = ? AND " +
+        DatabaseHelper.COLUMN_DAILY_COUNT + " <= 0";
+
+    private DailyTotalsTable() {
+    }
+
+    // Add amount and count to one rollup row, must run inside the caller's transaction
+    static void applyDelta(SQLiteDatabase db, int userId, long day, int categoryId,
+                           long amount, int count) {
+        SQLiteStatement update = db.compileStatement(SQL_UPDATE);
+        SQLiteStatement insert = db.compileStatement(SQL_INSERT);
+        try {
+            applyDelta(db, update, insert, userId, day, categoryId, amount, count);
+        } finally {
+            update.close();
+            insert.close();
+        }
+    }
+
+    private static void applyDelta(SQLiteDatabase db, SQLiteStatement update, SQLiteStatement insert,
+                                   int userId, long day, int categoryId, long amount, int count) {
+        bindRow(update, userId, day, categoryId, amount, count);
+        if (update.executeUpdateDelete() == 0) {
+            bindRow(insert, userId, day, categoryId, amount, count);
+            insert.executeInsert();
+        }
+
+        if (count < 0) {
+            db.execSQL(SQL_DELETE_EMPTY, new Object[]{userId, day, categoryId});
+        }
+    }
+
+    private static void bindRow(SQLiteStatement statement, int userId, long day, int categoryId,
+                                long amount, int count) {
+        statement.bindLong(1, amount);
+        statement.bindLong(2, count);
+        statement.bindLong(3, userId);
+        statement.bindLong(4, day);
+        statement.bindLong(5, categoryId);
+    }
+
+    // Recompute the whole rollup from the expenses table
+    static void rebuild(SQLiteDatabase db) {
+        Batch batch = new Batch();
+
+        Cursor cursor = db.query(
+            DatabaseHelper.TABLE_EXPENSES,
+            new String[]{
+                DatabaseHelper.COLUMN_EXPENSE_USER_ID,
+                DatabaseHelper.COLUMN_EXPENSE_DATE,
+                DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID,
+                DatabaseHelper.COLUMN_EXPENSE_AMOUNT
+            },
+            null, null, null, null, null
+        );
+
+        try {
+            while (cursor.moveToNext()) {
+                batch.add(cursor.getInt(0), CalendarPeriods.toEpochDay(cursor.getLong(1)),
+                    cursor.getInt(2), cursor.getLong(3), 1);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        db.beginTransaction();
+        try {
+            db.delete(DatabaseHelper.TABLE_DAILY_TOTALS, null, null);
+            batch.apply(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Collects rollup deltas in memory so bulk writes touch each rollup row once
+    static final class Batch {
+        private final Map<Key, long[]> totals = new HashMap<>();
+
+        void add(int userId, long day, int categoryId, long amount, int count) {
+            Key key = new Key(userId, day, categoryId);
+            long[] total = totals.get(key);
+            if (total == null) {
+                total = new long[2];
+                totals.put(key, total);
+            }
+            total[0] += amount;
+            total[1] += count;
+        }
+
+        // Write all collected deltas, must run inside the caller's transaction
+        void apply(SQLiteDatabase db) {
+            SQLiteStatement update = db.compileStatement(SQL_UPDATE);
+            SQLiteStatement insert = db.compileStatement(SQL_INSERT);
+            try {
+                for (Map.Entry<Key, long[]> entry : totals.entrySet()) {
+                    Key key = entry.getKey();
+                    long[] total = entry.getValue();
+                    applyDelta(db, update, insert, key.userId, key.day, key.categoryId,
+                        total[0], (int) total[1]);
+                }
+            } finally {
+                update.close();
+                insert.close();
+            }
+        }
+    }
+
+    // Rollup primary key
+    private static final class Key {
+        final int userId;
+        final long day;
+        final int categoryId;
+
+        Key(int userId, long day, int categoryId) {
+            this.userId = userId;
+            this.day = day;
+            this.categoryId = categoryId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId == other.userId && day == other.day && categoryId == other.categoryId;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = userId;
+            result = 31 * result + (int) (day ^ (day >>> 32));
+            result = 31 * result + categoryId;
+            return result;
+        }
+    }
+}
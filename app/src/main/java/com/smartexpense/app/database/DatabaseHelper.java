@@ -1,6 +1,7 @@
 package com.smartexpense.app.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
@@ -8,11 +9,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Database Info
     private static final String DATABASE_NAME = "smartexpense.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 6;
 
     // Table Names
     public static final String TABLE_USERS = "users";
     public static final String TABLE_EXPENSES = "expenses";
+    public static final String TABLE_CATEGORIES = "categories";
+    public static final String TABLE_EXPENSES_FTS = "expenses_fts";
+    public static final String TABLE_DAILY_TOTALS = "expense_daily_totals";
 
     // Users Table Columns
     public static final String COLUMN_USER_ID = "id";
@@ -26,9 +30,24 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_EXPENSE_ID = "id";
     public static final String COLUMN_EXPENSE_USER_ID = "user_id";
     public static final String COLUMN_EXPENSE_AMOUNT = "amount";
-    public static final String COLUMN_EXPENSE_CATEGORY = "category";
+    public static final String COLUMN_EXPENSE_CATEGORY_ID = "category_id";
     public static final String COLUMN_EXPENSE_DESCRIPTION = "description";
     public static final String COLUMN_EXPENSE_DATE = "date";
+    // Free-text category column of schemas before version 6
+    private static final String LEGACY_COLUMN_EXPENSE_CATEGORY = "category";
+
+    // Categories Table Columns, user_id is NULL for built-in categories
+    public static final String COLUMN_CATEGORY_ID = "id";
+    public static final String COLUMN_CATEGORY_USER_ID = "user_id";
+    public static final String COLUMN_CATEGORY_NAME = "name";
+    public static final String COLUMN_CATEGORY_COLOR = "color";
+
+    // Daily Totals Table Columns
+    public static final String COLUMN_DAILY_USER_ID = "user_id";
+    public static final String COLUMN_DAILY_DAY = "day";
+    public static final String COLUMN_DAILY_CATEGORY_ID = "category_id";
+    public static final String COLUMN_DAILY_TOTAL = "total";
+    public static final String COLUMN_DAILY_COUNT = "count";
 
     // Create Users Table SQL
     private static final String CREATE_TABLE_USERS =
@@ -41,21 +60,97 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         COLUMN_USER_SECURITY_ANSWER + " TEXT" +
         ")";
 
-    // Create Expenses Table SQL
-    private static final String CREATE_TABLE_EXPENSES =
-        "CREATE TABLE " + TABLE_EXPENSES + "(" +
-        COLUMN_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
-        COLUMN_EXPENSE_USER_ID + " INTEGER," +
-        COLUMN_EXPENSE_AMOUNT + " REAL," +
-        COLUMN_EXPENSE_CATEGORY + " TEXT," +
-        COLUMN_EXPENSE_DESCRIPTION + " TEXT," +
-        COLUMN_EXPENSE_DATE + " INTEGER," +
-        "FOREIGN KEY(" + COLUMN_EXPENSE_USER_ID + ") REFERENCES " +
+    // Create Categories Table SQL, names are unique per user ignoring case, color is an ARGB int
+    private static final String CREATE_TABLE_CATEGORIES =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_CATEGORIES + "(" +
+        COLUMN_CATEGORY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+        COLUMN_CATEGORY_USER_ID + " INTEGER," +
+        COLUMN_CATEGORY_NAME + " TEXT NOT NULL COLLATE NOCASE," +
+        COLUMN_CATEGORY_COLOR + " INTEGER NOT NULL," +
+        "UNIQUE(" + COLUMN_CATEGORY_USER_ID + ", " + COLUMN_CATEGORY_NAME + ")," +
+        "FOREIGN KEY(" + COLUMN_CATEGORY_USER_ID + ") REFERENCES " +
         TABLE_USERS + "(" + COLUMN_USER_ID + ")" +
         ")";
 
+    // Create Expenses Table SQL, amount is stored in minor units (cents)
+    private static final String CREATE_TABLE_EXPENSES = createExpensesTableSql(TABLE_EXPENSES);
+
+    // Create Daily Totals Table SQL, day is the local calendar day since the epoch
+    private static final String CREATE_TABLE_DAILY_TOTALS =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_DAILY_TOTALS + "(" +
+        COLUMN_DAILY_USER_ID + " INTEGER NOT NULL," +
+        COLUMN_DAILY_DAY + " INTEGER NOT NULL," +
+        COLUMN_DAILY_CATEGORY_ID + " INTEGER NOT NULL," +
+        COLUMN_DAILY_TOTAL + " INTEGER NOT NULL DEFAULT 0," +
+        COLUMN_DAILY_COUNT + " INTEGER NOT NULL DEFAULT 0," +
+        "PRIMARY KEY(" + COLUMN_DAILY_USER_ID + ", " + COLUMN_DAILY_DAY + ", " + COLUMN_DAILY_CATEGORY_ID + ")" +
+        ") WITHOUT ROWID";
+
+    // Expenses Indexes
+    // (user_id, date) serves list ordering and date ranges, rowid breaks ties
+    private static final String CREATE_INDEX_EXPENSES_USER_DATE =
+        "CREATE INDEX IF NOT EXISTS idx_expenses_user_date ON " + TABLE_EXPENSES + "(" +
+        COLUMN_EXPENSE_USER_ID + ", " + COLUMN_EXPENSE_DATE + ")";
+
+    // (user_id, category_id, date) serves category filters sorted by date
+    private static final String CREATE_INDEX_EXPENSES_USER_CATEGORY_DATE =
+        "CREATE INDEX IF NOT EXISTS idx_expenses_user_category_date ON " + TABLE_EXPENSES + "(" +
+        COLUMN_EXPENSE_USER_ID + ", " + COLUMN_EXPENSE_CATEGORY_ID + ", " + COLUMN_EXPENSE_DATE + ")";
+
+    // Covering index so range SUMs never touch the table
+    private static final String CREATE_INDEX_EXPENSES_USER_DATE_AMOUNT =
+        "CREATE INDEX IF NOT EXISTS idx_expenses_user_date_amount ON " + TABLE_EXPENSES + "(" +
+        COLUMN_EXPENSE_USER_ID + ", " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_AMOUNT + ")";
+
+    // Full-text index over expense descriptions, docid mirrors expenses.id
+    private static final String CREATE_TABLE_EXPENSES_FTS =
+        "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_EXPENSES_FTS + " USING fts4(" +
+        "content=\"" + TABLE_EXPENSES + "\", " +
+        COLUMN_EXPENSE_DESCRIPTION + ", " +
+        "tokenize=unicode61" +
+        ")";
+
+    // Triggers keeping the full-text index in sync with the expenses table
+    private static final String[] CREATE_TRIGGERS_EXPENSES_FTS = {
+        "CREATE TRIGGER IF NOT EXISTS expenses_fts_before_update BEFORE UPDATE OF " +
+        COLUMN_EXPENSE_DESCRIPTION + " ON " + TABLE_EXPENSES + " BEGIN " +
+        "DELETE FROM " + TABLE_EXPENSES_FTS + " WHERE docid = old." + COLUMN_EXPENSE_ID + "; END",
+
+        "CREATE TRIGGER IF NOT EXISTS expenses_fts_before_delete BEFORE DELETE ON " +
+        TABLE_EXPENSES + " BEGIN " +
+        "DELETE FROM " + TABLE_EXPENSES_FTS + " WHERE docid = old." + COLUMN_EXPENSE_ID + "; END",
+
+        "CREATE TRIGGER IF NOT EXISTS expenses_fts_after_update AFTER UPDATE OF " +
+        COLUMN_EXPENSE_DESCRIPTION + " ON " + TABLE_EXPENSES + " BEGIN " +
+        "INSERT INTO " + TABLE_EXPENSES_FTS + "(docid, " + COLUMN_EXPENSE_DESCRIPTION + ") " +
+        "VALUES (new." + COLUMN_EXPENSE_ID + ", new." + COLUMN_EXPENSE_DESCRIPTION + "); END",
+
+        "CREATE TRIGGER IF NOT EXISTS expenses_fts_after_insert AFTER INSERT ON " +
+        TABLE_EXPENSES + " BEGIN " +
+        "INSERT INTO " + TABLE_EXPENSES_FTS + "(docid, " + COLUMN_EXPENSE_DESCRIPTION + ") " +
+        "VALUES (new." + COLUMN_EXPENSE_ID + ", new." + COLUMN_EXPENSE_DESCRIPTION + "); END"
+    };
+
+    // Connection tuning defaults
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    public static final int DEFAULT_CACHE_SIZE_KB = 2048;
+    public static final long DEFAULT_MMAP_SIZE = 32L * 1024 * 1024;
+
+    private static int pageSize = DEFAULT_PAGE_SIZE;
+    private static int cacheSizeKb = DEFAULT_CACHE_SIZE_KB;
+    private static long mmapSize = DEFAULT_MMAP_SIZE;
+
     private static DatabaseHelper instance;
 
+    // Shared connection, opened once and kept open for the life of the process. Work queued on the
+    // app executors may outlive any screen, so no owner is allowed to close it underneath them.
+    // SQLite checkpoints the WAL as it grows and replays it on the next open, so the process
+    // exiting without a close loses nothing.
+    private SQLiteDatabase database;
+    private StatementCache statementCache = new StatementCache(this);
+    private InvalidationTracker invalidationTracker = new InvalidationTracker();
+    private CategoryRegistry categoryRegistry = new CategoryRegistry(this);
+
     public static synchronized DatabaseHelper getInstance(Context context) {
         if (instance == null) {
             instance = new DatabaseHelper(context.getApplicationContext());
@@ -63,27 +158,173 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return instance;
     }
 
+    // Configure connection tuning, must be called before the helper is first created
+    public static synchronized void configure(int pageSize, int cacheSizeKb, long mmapSize) {
+        if (instance != null) {
+            throw new IllegalStateException("DatabaseHelper is already initialized");
+        }
+        DatabaseHelper.pageSize = pageSize;
+        DatabaseHelper.cacheSizeKb = cacheSizeKb;
+        DatabaseHelper.mmapSize = mmapSize;
+    }
+
     private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    // Get the shared connection, DAOs must never close it
+    public synchronized SQLiteDatabase getDatabase() {
+        if (database == null || !database.isOpen()) {
+            database = getWritableDatabase();
+        }
+        return database;
+    }
+
+    // Compiled statements for scalar queries on the shared connection
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    // Change notifications for writes made through the DAOs
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
+    }
+
+    // Categories with their resolved colors, loaded on first use
+    public CategoryRegistry getCategoryRegistry() {
+        return categoryRegistry;
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(CREATE_TABLE_USERS);
+        db.execSQL(CREATE_TABLE_CATEGORIES);
+        CategoryRegistry.seed(db);
         db.execSQL(CREATE_TABLE_EXPENSES);
+        createExpenseIndexes(db);
+        createSearchIndex(db);
+        db.execSQL(CREATE_TABLE_DAILY_TOTALS);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        onCreate(db);
+        // Every schema before 6 converges on the current one through a single rebuild
+        // of the expenses table, which also recreates its indexes, search triggers and rollup
+        if (oldVersion < 6) {
+            migrateToCategoryIds(db, oldVersion);
+        }
+    }
+
+    private static String createExpensesTableSql(String tableName) {
+        return "CREATE TABLE " + tableName + "(" +
+            COLUMN_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+            COLUMN_EXPENSE_USER_ID + " INTEGER," +
+            COLUMN_EXPENSE_AMOUNT + " INTEGER NOT NULL DEFAULT 0," +
+            COLUMN_EXPENSE_CATEGORY_ID + " INTEGER NOT NULL," +
+            COLUMN_EXPENSE_DESCRIPTION + " TEXT," +
+            COLUMN_EXPENSE_DATE + " INTEGER," +
+            "FOREIGN KEY(" + COLUMN_EXPENSE_USER_ID + ") REFERENCES " +
+            TABLE_USERS + "(" + COLUMN_USER_ID + ")," +
+            "FOREIGN KEY(" + COLUMN_EXPENSE_CATEGORY_ID + ") REFERENCES " +
+            TABLE_CATEGORIES + "(" + COLUMN_CATEGORY_ID + ")" +
+            ")";
+    }
+
+    // Move free-text categories into the categories table and rebuild expenses around their ids.
+    // Before version 5 amounts were REAL and are converted to cents on the way.
+    // Ids are kept so the search index stays valid.
+    private static void migrateToCategoryIds(SQLiteDatabase db, int oldVersion) {
+        db.execSQL(CREATE_TABLE_CATEGORIES);
+        CategoryRegistry.seed(db);
+
+        // One user-defined category per distinct name a user typed that is not built in
+        Cursor cursor = db.rawQuery(
+            "SELECT DISTINCT " + COLUMN_EXPENSE_USER_ID + ", " + LEGACY_COLUMN_EXPENSE_CATEGORY +
+            " FROM " + TABLE_EXPENSES + " WHERE " + LEGACY_COLUMN_EXPENSE_CATEGORY + " <> ''" +
+            " AND " + LEGACY_COLUMN_EXPENSE_CATEGORY + " COLLATE NOCASE NOT IN (SELECT " + COLUMN_CATEGORY_NAME +
+            " FROM " + TABLE_CATEGORIES + " WHERE " + COLUMN_CATEGORY_USER_ID + " IS NULL)",
+            null
+        );
+        try {
+            while (cursor.moveToNext()) {
+                CategoryRegistry.insertUserCategory(db, cursor.getInt(0), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        String amount = oldVersion < 5 ?
+            "CAST(ROUND(IFNULL(e." + COLUMN_EXPENSE_AMOUNT + ", 0) * 100) AS INTEGER)" :
+            "e." + COLUMN_EXPENSE_AMOUNT;
+        String categoryId = "IFNULL((SELECT c." + COLUMN_CATEGORY_ID + " FROM " + TABLE_CATEGORIES + " c" +
+            " WHERE c." + COLUMN_CATEGORY_NAME + " = e." + LEGACY_COLUMN_EXPENSE_CATEGORY +
+            " AND (c." + COLUMN_CATEGORY_USER_ID + " IS NULL OR c." + COLUMN_CATEGORY_USER_ID +
+            " = e." + COLUMN_EXPENSE_USER_ID + ")" +
+            " ORDER BY c." + COLUMN_CATEGORY_USER_ID + " IS NOT NULL LIMIT 1), " +
+            CategoryRegistry.OTHER_ID + ")";
+
+        String newTable = TABLE_EXPENSES + "_new";
+        db.execSQL(createExpensesTableSql(newTable));
+        db.execSQL("INSERT INTO " + newTable + "(" +
+            COLUMN_EXPENSE_ID + ", " + COLUMN_EXPENSE_USER_ID + ", " + COLUMN_EXPENSE_AMOUNT + ", " +
+            COLUMN_EXPENSE_CATEGORY_ID + ", " + COLUMN_EXPENSE_DESCRIPTION + ", " + COLUMN_EXPENSE_DATE +
+            ") SELECT e." + COLUMN_EXPENSE_ID + ", e." + COLUMN_EXPENSE_USER_ID + ", " + amount + ", " +
+            categoryId + ", e." + COLUMN_EXPENSE_DESCRIPTION + ", e." + COLUMN_EXPENSE_DATE +
+            " FROM " + TABLE_EXPENSES + " e");
+        // Dropping the old table also drops its indexes and search triggers
+        db.execSQL("DROP TABLE " + TABLE_EXPENSES);
+        db.execSQL("ALTER TABLE " + newTable + " RENAME TO " + TABLE_EXPENSES);
+        createExpenseIndexes(db);
+        createSearchIndex(db);
+        if (oldVersion < 3) {
+            rebuildSearchIndex(db);
+        }
+        db.execSQL("ANALYZE " + TABLE_EXPENSES);
+
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_DAILY_TOTALS);
+        db.execSQL(CREATE_TABLE_DAILY_TOTALS);
+        DailyTotalsTable.rebuild(db);
+    }
+
+    private static void createExpenseIndexes(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX_EXPENSES_USER_DATE);
+        db.execSQL(CREATE_INDEX_EXPENSES_USER_CATEGORY_DATE);
+        db.execSQL(CREATE_INDEX_EXPENSES_USER_DATE_AMOUNT);
+    }
+
+    private static void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_EXPENSES_FTS);
+        for (String trigger : CREATE_TRIGGERS_EXPENSES_FTS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    // Repopulate the full-text index from the expenses table
+    static void rebuildSearchIndex(SQLiteDatabase db) {
+        db.execSQL("INSERT INTO " + TABLE_EXPENSES_FTS + "(" + TABLE_EXPENSES_FTS + ") VALUES('rebuild')");
     }
 
     @Override
     public void onConfigure(SQLiteDatabase db) {
         super.onConfigure(db);
         db.setForeignKeyConstraintsEnabled(true);
+
+        // page_size only applies to a new database, the others apply per connection
+        runPragma(db, "page_size = " + pageSize);
+        runPragma(db, "cache_size = -" + cacheSizeKb);
+        runPragma(db, "mmap_size = " + mmapSize);
+        runPragma(db, "synchronous = NORMAL");
+    }
+
+    // Run a PRAGMA through a cursor since some of them return a row
+    private static void runPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
     }
 }
 
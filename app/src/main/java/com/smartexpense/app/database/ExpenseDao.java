@@ -2,307 +2,608 @@ package com.smartexpense.app.database;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
 
+import com.smartexpense.app.model.BucketTotal;
 import com.smartexpense.app.model.CategoryTotal;
+import com.smartexpense.app.model.DashboardSummary;
 import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.Money;
+import com.smartexpense.app.model.TimeBucket;
+import com.smartexpense.app.utils.CalendarPeriods;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
 
 public class ExpenseDao {
 
+    // Rows between two progress callbacks of bulk operations
+    private static final int PROGRESS_INTERVAL = 500;
+
+    private static final String SQL_INSERT_EXPENSE =
+        "INSERT INTO " + DatabaseHelper.TABLE_EXPENSES + "(" +
+        DatabaseHelper.COLUMN_EXPENSE_USER_ID + ", " +
+        DatabaseHelper.COLUMN_EXPENSE_AMOUNT + ", " +
+        DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID + ", " +
+        DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION + ", " +
+        DatabaseHelper.COLUMN_EXPENSE_DATE + ") VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SQL_TOTAL_BY_DAY_RANGE =
+        "SELECT IFNULL(SUM(" + DatabaseHelper.COLUMN_DAILY_TOTAL + "), 0) FROM " +
+        DatabaseHelper.TABLE_DAILY_TOTALS + " WHERE " +
+        DatabaseHelper.COLUMN_DAILY_USER_ID + " = ? AND " +
+        DatabaseHelper.COLUMN_DAILY_DAY + " BETWEEN ? AND ?";
+
+    // Rollup total of the rows whose day falls in [?, ?]
+    private static final String SUM_OF_DAYS =
+        "SUM(CASE WHEN " + DatabaseHelper.COLUMN_DAILY_DAY + " BETWEEN ? AND ? THEN " +
+        DatabaseHelper.COLUMN_DAILY_TOTAL + " ELSE 0 END)";
+
+    // Columns: today, week, month. Only rollup days from the earlier of week and month start are read.
+    private static final String SQL_DASHBOARD_SUMMARY =
+        "SELECT " + SUM_OF_DAYS + ", " + SUM_OF_DAYS + ", " + SUM_OF_DAYS + " FROM " +
+        DatabaseHelper.TABLE_DAILY_TOTALS + " WHERE " +
+        DatabaseHelper.COLUMN_DAILY_USER_ID + " = ? AND " +
+        DatabaseHelper.COLUMN_DAILY_DAY + " BETWEEN ? AND ?";
+
+    // Julian day number of 1970-01-01 00:00 UTC
+    private static final String UNIX_EPOCH_JULIAN_DAY = "2440587.5";
+
     private DatabaseHelper dbHelper;
+    private CategoryRegistry categoryRegistry;
+
+    // Progress of a bulk operation
+    public interface ProgressListener {
+        void onProgress(int done, int total);
+    }
 
     public ExpenseDao(DatabaseHelper dbHelper) {
         this.dbHelper = dbHelper;
+        this.categoryRegistry = dbHelper.getCategoryRegistry();
     }
 
-    // Create expense
+    // Resolve the expense's category name to an id and canonical name. May insert a user category,
+    // so it runs before the write transaction begins.
+    private int resolveCategoryId(Expense expense) {
+        int categoryId = expense.getCategory() == null && expense.getCategoryId() > 0 ?
+            expense.getCategoryId() : categoryRegistry.resolveId(expense.getUserId(), expense.getCategory());
+        expense.setCategoryId(categoryId);
+        expense.setCategory(categoryRegistry.getName(categoryId));
+        return categoryId;
+    }
+
+    // Create expense, the daily rollup is updated in the same transaction
     public long createExpense(Expense expense) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbHelper.getDatabase();
+        int categoryId = resolveCategoryId(expense);
 
         ContentValues values = new ContentValues();
         values.put(DatabaseHelper.COLUMN_EXPENSE_USER_ID, expense.getUserId());
-        values.put(DatabaseHelper.COLUMN_EXPENSE_AMOUNT, expense.getAmount());
-        values.put(DatabaseHelper.COLUMN_EXPENSE_CATEGORY, expense.getCategory());
+        values.put(DatabaseHelper.COLUMN_EXPENSE_AMOUNT, expense.getAmount().getMinorUnits());
+        values.put(DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID, categoryId);
         values.put(DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION, expense.getDescription());
         values.put(DatabaseHelper.COLUMN_EXPENSE_DATE, expense.getDate());
 
-        long id = db.insert(DatabaseHelper.TABLE_EXPENSES, null, values);
-        db.close();
+        long id;
+        db.beginTransaction();
+        try {
+            id = db.insert(DatabaseHelper.TABLE_EXPENSES, null, values);
+            if (id != -1) {
+                DailyTotalsTable.applyDelta(db, expense.getUserId(),
+                    CalendarPeriods.toEpochDay(expense.getDate()), categoryId,
+                    expense.getAmount().getMinorUnits(), 1);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
 
+        if (id != -1) {
+            notifyExpensesChanged(expense.getUserId(), expense.getDate(), expense.getDate());
+        }
         return id;
     }
 
-    // Get all expenses for a user
-    public List<Expense> getAllExpenses(int userId) {
-        List<Expense> expenses = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+    // Create many expenses in one transaction, returns the generated ids in list order
+    public long[] createExpenses(List<Expense> expenses) {
+        return createExpenses(expenses, null);
+    }
+
+    // Create many expenses in one transaction, reporting progress every few hundred rows
+    public long[] createExpenses(List<Expense> expenses, ProgressListener listener) {
+        SQLiteDatabase db = dbHelper.getDatabase();
+        int total = expenses.size();
+        long[] ids = new long[total];
+        DailyTotalsTable.Batch dailyTotals = new DailyTotalsTable.Batch();
+        int changedUserId = total > 0 ? expenses.get(0).getUserId() : InvalidationTracker.ALL_USERS;
+        long startDate = Long.MAX_VALUE;
+        long endDate = Long.MIN_VALUE;
+
+        for (Expense expense : expenses) {
+            resolveCategoryId(expense);
+        }
 
+        db.beginTransaction();
+        SQLiteStatement insert = db.compileStatement(SQL_INSERT_EXPENSE);
+        try {
+            for (int i = 0; i < total; i++) {
+                Expense expense = expenses.get(i);
+                insert.bindLong(1, expense.getUserId());
+                insert.bindLong(2, expense.getAmount().getMinorUnits());
+                insert.bindLong(3, expense.getCategoryId());
+                bindStringOrNull(insert, 4, expense.getDescription());
+                insert.bindLong(5, expense.getDate());
+                ids[i] = insert.executeInsert();
+
+                dailyTotals.add(expense.getUserId(), CalendarPeriods.toEpochDay(expense.getDate()),
+                    expense.getCategoryId(), expense.getAmount().getMinorUnits(), 1);
+                if (expense.getUserId() != changedUserId) {
+                    changedUserId = InvalidationTracker.ALL_USERS;
+                }
+                startDate = Math.min(startDate, expense.getDate());
+                endDate = Math.max(endDate, expense.getDate());
+
+                if (listener != null && (i + 1) % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(i + 1, total);
+                }
+            }
+            dailyTotals.apply(db);
+            db.setTransactionSuccessful();
+        } finally {
+            insert.close();
+            db.endTransaction();
+        }
+
+        if (total > 0) {
+            notifyExpensesChanged(changedUserId, startDate, endDate);
+        }
+        if (listener != null) {
+            listener.onProgress(total, total);
+        }
+        return ids;
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    // Get one page of expenses, newest first, continuing after the (date, id) key of the previous page
+    public List<Expense> getExpensesPage(int userId, long afterDate, int afterId, int pageSize) {
+        List<Expense> expenses = new ArrayList<>(pageSize);
+        SQLiteDatabase db = dbHelper.getDatabase();
+
+        // The date bound is a range on idx_expenses_user_date, the id check only breaks ties
         Cursor cursor = db.query(
             DatabaseHelper.TABLE_EXPENSES,
-            null,
-            DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ?",
-            new String[]{String.valueOf(userId)},
+            ExpenseMapper.LIST_PROJECTION,
+            DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " <= ? AND (" +
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " < ? OR " +
+            DatabaseHelper.COLUMN_EXPENSE_ID + " < ?)",
+            new String[]{String.valueOf(userId), String.valueOf(afterDate),
+                String.valueOf(afterDate), String.valueOf(afterId)},
             null, null,
-            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC"
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC, " + DatabaseHelper.COLUMN_EXPENSE_ID + " DESC",
+            String.valueOf(pageSize)
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                expenses.add(cursorToExpense(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-
-        db.close();
-        return expenses;
+        return new ExpenseMapper(categoryRegistry, userId).readAll(cursor, expenses);
     }
 
     // Get expense by ID
     public Expense getExpenseById(int expenseId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Expense expense = null;
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         Cursor cursor = db.query(
             DatabaseHelper.TABLE_EXPENSES,
-            null,
+            ExpenseMapper.FULL_PROJECTION,
             DatabaseHelper.COLUMN_EXPENSE_ID + " = ?",
             new String[]{String.valueOf(expenseId)},
             null, null, null
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            expense = cursorToExpense(cursor);
-            cursor.close();
-        }
-
-        db.close();
-        return expense;
+        return new ExpenseMapper(categoryRegistry).readFirst(cursor);
     }
 
-    // Update expense
+    // Update expense, moving its amount between rollup days and categories
     public boolean updateExpense(Expense expense) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbHelper.getDatabase();
+        int categoryId = resolveCategoryId(expense);
 
         ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.COLUMN_EXPENSE_AMOUNT, expense.getAmount());
-        values.put(DatabaseHelper.COLUMN_EXPENSE_CATEGORY, expense.getCategory());
+        values.put(DatabaseHelper.COLUMN_EXPENSE_AMOUNT, expense.getAmount().getMinorUnits());
+        values.put(DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID, categoryId);
         values.put(DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION, expense.getDescription());
         values.put(DatabaseHelper.COLUMN_EXPENSE_DATE, expense.getDate());
 
-        int rows = db.update(
-            DatabaseHelper.TABLE_EXPENSES,
-            values,
-            DatabaseHelper.COLUMN_EXPENSE_ID + " = ?",
-            new String[]{String.valueOf(expense.getId())}
-        );
+        int rows = 0;
+        Expense previous;
+        db.beginTransaction();
+        try {
+            previous = getExpenseById(expense.getId());
+            if (previous != null) {
+                rows = db.update(
+                    DatabaseHelper.TABLE_EXPENSES,
+                    values,
+                    DatabaseHelper.COLUMN_EXPENSE_ID + " = ?",
+                    new String[]{String.valueOf(expense.getId())}
+                );
+            }
+            if (rows > 0) {
+                DailyTotalsTable.applyDelta(db, previous.getUserId(),
+                    CalendarPeriods.toEpochDay(previous.getDate()), previous.getCategoryId(),
+                    -previous.getAmount().getMinorUnits(), -1);
+                DailyTotalsTable.applyDelta(db, previous.getUserId(),
+                    CalendarPeriods.toEpochDay(expense.getDate()), categoryId,
+                    expense.getAmount().getMinorUnits(), 1);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
 
-        db.close();
+        if (rows > 0) {
+            // Both the old and the new date are affected
+            notifyExpensesChanged(previous.getUserId(), Math.min(previous.getDate(), expense.getDate()),
+                Math.max(previous.getDate(), expense.getDate()));
+        }
         return rows > 0;
     }
 
-    // Delete expense
+    // Delete expense and remove it from the daily rollup
     public boolean deleteExpense(int expenseId) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-
-        int rows = db.delete(
-            DatabaseHelper.TABLE_EXPENSES,
-            DatabaseHelper.COLUMN_EXPENSE_ID + " = ?",
-            new String[]{String.valueOf(expenseId)}
-        );
+        SQLiteDatabase db = dbHelper.getDatabase();
+
+        int rows = 0;
+        Expense previous;
+        db.beginTransaction();
+        try {
+            previous = getExpenseById(expenseId);
+            if (previous != null) {
+                rows = db.delete(
+                    DatabaseHelper.TABLE_EXPENSES,
+                    DatabaseHelper.COLUMN_EXPENSE_ID + " = ?",
+                    new String[]{String.valueOf(expenseId)}
+                );
+            }
+            if (rows > 0) {
+                DailyTotalsTable.applyDelta(db, previous.getUserId(),
+                    CalendarPeriods.toEpochDay(previous.getDate()), previous.getCategoryId(),
+                    -previous.getAmount().getMinorUnits(), -1);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
 
-        db.close();
+        if (rows > 0) {
+            notifyExpensesChanged(previous.getUserId(), previous.getDate(), previous.getDate());
+        }
         return rows > 0;
     }
 
-    // Search expenses by description
+    // Search expenses by description, prefix matching each word through the full-text index
     public List<Expense> searchExpenses(int userId, String query) {
+        return searchExpenses(userId, query, null);
+    }
+
+    // Search that stops with OperationCanceledException once the signal is cancelled
+    public List<Expense> searchExpenses(int userId, String query, CancellationSignal cancellationSignal) {
+        String matchQuery = SearchQueries.buildMatchQuery(query);
+        if (matchQuery == null) {
+            return searchExpensesByLike(userId, query, cancellationSignal);
+        }
+
         List<Expense> expenses = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbHelper.getDatabase();
+
+        // Descriptions starting with the query rank first, then newest first, then by id for equal dates
+        Cursor cursor = db.rawQuery(
+            "SELECT e." + DatabaseHelper.COLUMN_EXPENSE_ID +
+            ", e." + DatabaseHelper.COLUMN_EXPENSE_AMOUNT +
+            ", e." + DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID +
+            ", e." + DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION +
+            ", e." + DatabaseHelper.COLUMN_EXPENSE_DATE +
+            " FROM " + DatabaseHelper.TABLE_EXPENSES + " e JOIN " +
+            DatabaseHelper.TABLE_EXPENSES_FTS + " f ON f.docid = e." + DatabaseHelper.COLUMN_EXPENSE_ID +
+            " WHERE " + DatabaseHelper.TABLE_EXPENSES_FTS + " MATCH ? AND e." +
+            DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ?" +
+            " ORDER BY (e." + DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION + " LIKE ? ESCAPE '\\') DESC, e." +
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC, e." + DatabaseHelper.COLUMN_EXPENSE_ID + " DESC",
+            new String[]{matchQuery, String.valueOf(userId), SearchQueries.escapeLike(query.trim()) + "%"},
+            cancellationSignal
+        );
+
+        return new ExpenseMapper(categoryRegistry, userId).readAll(cursor, expenses);
+    }
+
+    // Fallback for queries without any word to match, e.g. only punctuation
+    private List<Expense> searchExpensesByLike(int userId, String query,
+                                               CancellationSignal cancellationSignal) {
+        List<Expense> expenses = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         Cursor cursor = db.query(
+            false,
             DatabaseHelper.TABLE_EXPENSES,
-            null,
+            ExpenseMapper.LIST_PROJECTION,
             DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ? AND " +
-            DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION + " LIKE ?",
-            new String[]{String.valueOf(userId), "%" + query + "%"},
+            DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION + " LIKE ? ESCAPE '\\'",
+            new String[]{String.valueOf(userId), "%" + SearchQueries.escapeLike(query) + "%"},
             null, null,
-            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC"
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC, " + DatabaseHelper.COLUMN_EXPENSE_ID + " DESC",
+            null,
+            cancellationSignal
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                expenses.add(cursorToExpense(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
+        return new ExpenseMapper(categoryRegistry, userId).readAll(cursor, expenses);
+    }
 
-        db.close();
-        return expenses;
+    // Rebuild the full-text index, e.g. after restoring an older database
+    public void rebuildSearchIndex() {
+        DatabaseHelper.rebuildSearchIndex(dbHelper.getDatabase());
     }
 
-    // Filter by category
+    // Filter by category name, empty if the user has no such category
     public List<Expense> getExpensesByCategory(int userId, String category) {
         List<Expense> expenses = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        int categoryId = categoryRegistry.findId(userId, category);
+        if (categoryId == 0) {
+            return expenses;
+        }
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         Cursor cursor = db.query(
             DatabaseHelper.TABLE_EXPENSES,
-            null,
+            ExpenseMapper.LIST_PROJECTION,
             DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ? AND " +
-            DatabaseHelper.COLUMN_EXPENSE_CATEGORY + " = ?",
-            new String[]{String.valueOf(userId), category},
+            DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID + " = ?",
+            new String[]{String.valueOf(userId), String.valueOf(categoryId)},
             null, null,
-            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC"
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC, " + DatabaseHelper.COLUMN_EXPENSE_ID + " DESC"
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                expenses.add(cursorToExpense(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-
-        db.close();
-        return expenses;
+        return new ExpenseMapper(categoryRegistry, userId).readAll(cursor, expenses);
     }
 
     // Get expenses by date range
     public List<Expense> getExpensesByDateRange(int userId, long startDate, long endDate) {
         List<Expense> expenses = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         Cursor cursor = db.query(
             DatabaseHelper.TABLE_EXPENSES,
-            null,
+            ExpenseMapper.LIST_PROJECTION,
             DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ? AND " +
             DatabaseHelper.COLUMN_EXPENSE_DATE + " BETWEEN ? AND ?",
             new String[]{String.valueOf(userId), String.valueOf(startDate), String.valueOf(endDate)},
             null, null,
-            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC"
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " DESC, " + DatabaseHelper.COLUMN_EXPENSE_ID + " DESC"
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                expenses.add(cursorToExpense(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-
-        db.close();
-        return expenses;
+        return new ExpenseMapper(categoryRegistry, userId).readAll(cursor, expenses);
     }
 
-    // Get total for today
-    public double getTodayTotal(int userId) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long startOfDay = calendar.getTimeInMillis();
+    // Open a forward-only cursor over a user's expenses for export, oldest first; the caller closes it
+    public Cursor queryExpensesForExport(int userId, long startDate, long endDate, String category) {
+        SQLiteDatabase db = dbHelper.getDatabase();
 
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-        calendar.set(Calendar.MILLISECOND, 999);
-        long endOfDay = calendar.getTimeInMillis();
+        return db.query(
+            DatabaseHelper.TABLE_EXPENSES,
+            new String[]{
+                DatabaseHelper.COLUMN_EXPENSE_DATE,
+                DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID,
+                DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION,
+                DatabaseHelper.COLUMN_EXPENSE_AMOUNT
+            },
+            exportSelection(category),
+            exportSelectionArgs(userId, startDate, endDate, category),
+            null, null,
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " ASC"
+        );
+    }
 
-        return getTotalByDateRange(userId, startOfDay, endOfDay);
+    // Count the rows queryExpensesForExport would return
+    public int countExpensesForExport(int userId, long startDate, long endDate, String category) {
+        SQLiteDatabase db = dbHelper.getDatabase();
+        return (int) DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_EXPENSES,
+            exportSelection(category), exportSelectionArgs(userId, startDate, endDate, category));
     }
 
-    // Get total for this week
-    public double getWeekTotal(int userId) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long startOfWeek = calendar.getTimeInMillis();
+    private static String exportSelection(String category) {
+        String selection = DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_EXPENSE_DATE + " BETWEEN ? AND ?";
+        if (category != null) {
+            selection += " AND " + DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID + " = ?";
+        }
+        return selection;
+    }
+
+    // An unknown category name resolves to id 0, which matches no rows
+    private String[] exportSelectionArgs(int userId, long startDate, long endDate, String category) {
+        if (category != null) {
+            return new String[]{String.valueOf(userId), String.valueOf(startDate),
+                String.valueOf(endDate), String.valueOf(categoryRegistry.findId(userId, category))};
+        }
+        return new String[]{String.valueOf(userId), String.valueOf(startDate), String.valueOf(endDate)};
+    }
 
-        long now = System.currentTimeMillis();
+    // Get total for today
+    public Money getTodayTotal(int userId) {
+        CalendarPeriods.Periods periods = CalendarPeriods.current();
+        return getTotalByDayRange(userId, periods.getToday(), periods.getToday());
+    }
 
-        return getTotalByDateRange(userId, startOfWeek, now);
+    // Get total for this week
+    public Money getWeekTotal(int userId) {
+        CalendarPeriods.Periods periods = CalendarPeriods.current();
+        return getTotalByDayRange(userId, periods.getWeekStart(), periods.getToday());
     }
 
     // Get total for this month
-    public double getMonthTotal(int userId) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long startOfMonth = calendar.getTimeInMillis();
+    public Money getMonthTotal(int userId) {
+        CalendarPeriods.Periods periods = CalendarPeriods.current();
+        return getTotalByDayRange(userId, periods.getMonthStart(), periods.getToday());
+    }
 
-        long now = System.currentTimeMillis();
+    // Get total over a range of local days, read from the daily rollup
+    private Money getTotalByDayRange(int userId, long startDay, long endDay) {
+        return Money.ofMinorUnits(
+            dbHelper.getStatementCache().queryForLong(SQL_TOTAL_BY_DAY_RANGE, userId, startDay, endDay));
+    }
 
-        return getTotalByDateRange(userId, startOfMonth, now);
+    // Get all-time category totals, read from the daily rollup
+    public List<CategoryTotal> getCategoryTotals(int userId) {
+        return getCategoryTotals(userId, Long.MIN_VALUE, Long.MAX_VALUE);
     }
 
-    // Get total by date range
-    private double getTotalByDateRange(int userId, long startDate, long endDate) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        double total = 0;
+    // Get category totals and counts over the local days of [startDate, endDate], read from the daily rollup
+    public List<CategoryTotal> getCategoryTotals(int userId, long startDate, long endDate) {
+        List<CategoryTotal> categoryTotals = new ArrayList<>();
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         Cursor cursor = db.rawQuery(
-            "SELECT SUM(" + DatabaseHelper.COLUMN_EXPENSE_AMOUNT + ") as total FROM " +
-            DatabaseHelper.TABLE_EXPENSES + " WHERE " +
-            DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ? AND " +
-            DatabaseHelper.COLUMN_EXPENSE_DATE + " BETWEEN ? AND ?",
-            new String[]{String.valueOf(userId), String.valueOf(startDate), String.valueOf(endDate)}
+            "SELECT " + DatabaseHelper.COLUMN_DAILY_CATEGORY_ID + ", " +
+            "SUM(" + DatabaseHelper.COLUMN_DAILY_TOTAL + "), " +
+            "SUM(" + DatabaseHelper.COLUMN_DAILY_COUNT + ") FROM " +
+            DatabaseHelper.TABLE_DAILY_TOTALS + " WHERE " +
+            DatabaseHelper.COLUMN_DAILY_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_DAILY_DAY + " BETWEEN ? AND ? GROUP BY " +
+            DatabaseHelper.COLUMN_DAILY_CATEGORY_ID,
+            new String[]{String.valueOf(userId), String.valueOf(toDayBound(startDate)),
+                String.valueOf(toDayBound(endDate))}
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            total = cursor.getDouble(cursor.getColumnIndexOrThrow("total"));
+        try {
+            while (cursor.moveToNext()) {
+                int categoryId = cursor.getInt(0);
+                categoryTotals.add(new CategoryTotal(categoryId, categoryRegistry.getName(categoryId),
+                    Money.ofMinorUnits(cursor.getLong(1)), cursor.getInt(2)));
+            }
+        } finally {
             cursor.close();
         }
+        return categoryTotals;
+    }
 
-        db.close();
-        return total;
+    // Local day of a range bound, keeping Long.MIN_VALUE / Long.MAX_VALUE open
+    private static long toDayBound(long timestamp) {
+        if (timestamp == Long.MIN_VALUE || timestamp == Long.MAX_VALUE) {
+            return timestamp;
+        }
+        return CalendarPeriods.toEpochDay(timestamp);
     }
 
-    // Get category totals
-    public List<CategoryTotal> getCategoryTotals(int userId) {
-        List<CategoryTotal> categoryTotals = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+    // Totals grouped into day, week, month or year buckets over the local days of [startDate, endDate],
+    // computed in SQL from the daily rollup. categoryId 0 means every category.
+    // Only buckets with expenses are returned, oldest first.
+    public List<BucketTotal> getTotalsByBucket(int userId, TimeBucket bucket, long startDate, long endDate,
+                                               int categoryId) {
+        String bucketStart = bucketStartSql(bucket);
+        String sql = "SELECT " + bucketStart + ", " +
+            "SUM(" + DatabaseHelper.COLUMN_DAILY_TOTAL + "), " +
+            "SUM(" + DatabaseHelper.COLUMN_DAILY_COUNT + ") FROM " +
+            DatabaseHelper.TABLE_DAILY_TOTALS + " WHERE " +
+            DatabaseHelper.COLUMN_DAILY_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_DAILY_DAY + " BETWEEN ? AND ?" +
+            (categoryId != 0 ? " AND " + DatabaseHelper.COLUMN_DAILY_CATEGORY_ID + " = ?" : "") +
+            " GROUP BY 1 ORDER BY 1";
+
+        String[] args = categoryId != 0 ?
+            new String[]{String.valueOf(userId), String.valueOf(toDayBound(startDate)),
+                String.valueOf(toDayBound(endDate)), String.valueOf(categoryId)} :
+            new String[]{String.valueOf(userId), String.valueOf(toDayBound(startDate)),
+                String.valueOf(toDayBound(endDate))};
+
+        List<BucketTotal> buckets = new ArrayList<>();
+        Cursor cursor = dbHelper.getDatabase().rawQuery(sql, args);
+        try {
+            while (cursor.moveToNext()) {
+                buckets.add(new BucketTotal(cursor.getLong(0),
+                    Money.ofMinorUnits(cursor.getLong(1)), cursor.getInt(2)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return buckets;
+    }
 
-        Cursor cursor = db.rawQuery(
-            "SELECT " + DatabaseHelper.COLUMN_EXPENSE_CATEGORY + ", " +
-            "SUM(" + DatabaseHelper.COLUMN_EXPENSE_AMOUNT + ") as total FROM " +
-            DatabaseHelper.TABLE_EXPENSES + " WHERE " +
-            DatabaseHelper.COLUMN_EXPENSE_USER_ID + " = ? GROUP BY " +
-            DatabaseHelper.COLUMN_EXPENSE_CATEGORY,
-            new String[]{String.valueOf(userId)}
-        );
+    // SQL for the local day a rollup row's bucket starts on. Rollup days are already local,
+    // so SQLite's UTC date functions give local calendar boundaries when applied to them.
+    private static String bucketStartSql(TimeBucket bucket) {
+        String day = DatabaseHelper.COLUMN_DAILY_DAY;
+        switch (bucket) {
+            case WEEK:
+                // 1970-01-01 was a Thursday, shift so the locale's first day of the week is 0
+                int shift = 5 - CalendarPeriods.current().getFirstDayOfWeek();
+                return day + " - (((" + day + " + " + shift + ") % 7) + 7) % 7";
+            case MONTH:
+                return startOfSql(day, "start of month");
+            case YEAR:
+                return startOfSql(day, "start of year");
+            case DAY:
+            default:
+                return day;
+        }
+    }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                String category = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_CATEGORY));
-                double total = cursor.getDouble(cursor.getColumnIndexOrThrow("total"));
-                categoryTotals.add(new CategoryTotal(category, total));
-            } while (cursor.moveToNext());
+    private static String startOfSql(String day, String modifier) {
+        return "CAST(julianday(" + day + " * 86400, 'unixepoch', '" + modifier + "') - " +
+            UNIX_EPOCH_JULIAN_DAY + " AS INTEGER)";
+    }
+
+    // Get today, week and month totals in one pass over the rollup days they span. A single
+    // statement reads one snapshot, so the three totals agree. Category totals for the pie come from
+    // getCategoryTotals for the period picked on the dashboard.
+    public DashboardSummary getDashboardSummary(int userId) {
+        CalendarPeriods.Periods periods = CalendarPeriods.current();
+        long today = periods.getToday();
+        long weekStart = periods.getWeekStart();
+        long monthStart = periods.getMonthStart();
+
+        SQLiteDatabase db = dbHelper.getDatabase();
+        Cursor cursor = db.rawQuery(SQL_DASHBOARD_SUMMARY, new String[]{
+            String.valueOf(today), String.valueOf(today),
+            String.valueOf(weekStart), String.valueOf(today),
+            String.valueOf(monthStart), String.valueOf(today),
+            String.valueOf(userId), String.valueOf(Math.min(weekStart, monthStart)), String.valueOf(today)
+        });
+
+        long todayTotal = 0;
+        long weekTotal = 0;
+        long monthTotal = 0;
+        try {
+            // One row, its sums are NULL when no day matched and read as 0
+            if (cursor.moveToFirst()) {
+                todayTotal = cursor.getLong(0);
+                weekTotal = cursor.getLong(1);
+                monthTotal = cursor.getLong(2);
+            }
+        } finally {
             cursor.close();
         }
 
-        db.close();
-        return categoryTotals;
+        return new DashboardSummary(Money.ofMinorUnits(todayTotal), Money.ofMinorUnits(weekTotal),
+            Money.ofMinorUnits(monthTotal));
     }
 
-    // Helper method to convert cursor to Expense object
-    private Expense cursorToExpense(Cursor cursor) {
-        return new Expense(
-            cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_ID)),
-            cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_USER_ID)),
-            cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_AMOUNT)),
-            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_CATEGORY)),
-            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION)),
-            cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_DATE))
-        );
+    // Recompute the daily rollup from the expenses table
+    public void rebuildDailyTotals() {
+        DailyTotalsTable.rebuild(dbHelper.getDatabase());
+        dbHelper.getInvalidationTracker().notifyChanged(
+            new InvalidationTracker.Change(DatabaseHelper.TABLE_DAILY_TOTALS, InvalidationTracker.ALL_USERS));
     }
-}
 
+    // Tell observers which rows of expenses, and so of the daily rollup, a committed write touched
+    private void notifyExpensesChanged(int userId, long startDate, long endDate) {
+        dbHelper.getInvalidationTracker().notifyChanged(
+            new InvalidationTracker.Change(DatabaseHelper.TABLE_EXPENSES, userId, startDate, endDate));
+    }
+}
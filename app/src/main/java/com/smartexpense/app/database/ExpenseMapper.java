@@ -0,0 +1,73 @@
+package com.smartexpense.app.database;
+
+import android.database.Cursor;
+
+import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.Money;
+
+final class ExpenseMapper extends RowMapper<Expense> {
+
+    // Columns for per-user queries, the user id is already known to the caller
+    static final String[] LIST_PROJECTION = {
+        DatabaseHelper.COLUMN_EXPENSE_ID,
+        DatabaseHelper.COLUMN_EXPENSE_AMOUNT,
+        DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID,
+        DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION,
+        DatabaseHelper.COLUMN_EXPENSE_DATE
+    };
+
+    // Columns for lookups where the owner is not known up front
+    static final String[] FULL_PROJECTION = {
+        DatabaseHelper.COLUMN_EXPENSE_ID,
+        DatabaseHelper.COLUMN_EXPENSE_USER_ID,
+        DatabaseHelper.COLUMN_EXPENSE_AMOUNT,
+        DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID,
+        DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION,
+        DatabaseHelper.COLUMN_EXPENSE_DATE
+    };
+
+    private final CategoryRegistry categoryRegistry;
+    private int userId;
+
+    private int idIndex;
+    private int userIdIndex;
+    private int amountIndex;
+    private int categoryIndex;
+    private int descriptionIndex;
+    private int dateIndex;
+
+    // Mapper for cursors that project user_id
+    ExpenseMapper(CategoryRegistry categoryRegistry) {
+        this(categoryRegistry, 0);
+    }
+
+    // Mapper that fills in userId when the cursor does not project it
+    ExpenseMapper(CategoryRegistry categoryRegistry, int userId) {
+        this.categoryRegistry = categoryRegistry;
+        this.userId = userId;
+    }
+
+    @Override
+    protected void resolveColumns(Cursor cursor) {
+        idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_ID);
+        userIdIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_EXPENSE_USER_ID);
+        amountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_AMOUNT);
+        categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_CATEGORY_ID);
+        descriptionIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_DESCRIPTION);
+        dateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_EXPENSE_DATE);
+    }
+
+    @Override
+    protected Expense mapRow(Cursor cursor) {
+        int categoryId = cursor.getInt(categoryIndex);
+        return new Expense(
+            cursor.getInt(idIndex),
+            userIdIndex >= 0 ? cursor.getInt(userIdIndex) : userId,
+            Money.ofMinorUnits(cursor.getLong(amountIndex)),
+            categoryId,
+            categoryRegistry.getName(categoryId),
+            cursor.getString(descriptionIndex),
+            cursor.getLong(dateIndex)
+        );
+    }
+}
@@ -0,0 +1,85 @@
+package com.smartexpense.app.database;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Publishes which table rows changed after a write commits, so cached query results know when to reload
+public class InvalidationTracker {
+
+    // userId of a change that may touch every user
+    public static final int ALL_USERS = -1;
+
+    // A committed write to one table for one user over a range of expense dates, inclusive
+    public static final class Change {
+        private final String table;
+        private final int userId;
+        private final long startDate;
+        private final long endDate;
+
+        public Change(String table, int userId, long startDate, long endDate) {
+            this.table = table;
+            this.userId = userId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        // A change with no known date range
+        public Change(String table, int userId) {
+            this(table, userId, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public long getStartDate() {
+            return startDate;
+        }
+
+        public long getEndDate() {
+            return endDate;
+        }
+
+        // True if this change can affect a query over the given tables, user and dates
+        public boolean overlaps(String[] tables, int userId, long startDate, long endDate) {
+            if (this.userId != ALL_USERS && userId != ALL_USERS && this.userId != userId) {
+                return false;
+            }
+            if (this.startDate > endDate || this.endDate < startDate) {
+                return false;
+            }
+            for (String t : tables) {
+                if (t.equals(table)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public interface Observer {
+        // Called on the writing thread right after the transaction committed
+        void onInvalidated(Change change);
+    }
+
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+
+    public void addObserver(Observer observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    // Call only after the write has committed
+    public void notifyChanged(Change change) {
+        for (Observer observer : observers) {
+            observer.onInvalidated(change);
+        }
+    }
+}
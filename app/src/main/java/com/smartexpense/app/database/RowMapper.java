@@ -0,0 +1,38 @@
+package com.smartexpense.app.database;
+
+import android.database.Cursor;
+
+import java.util.List;
+
+// Maps cursor rows to models, column indices are resolved once per cursor instead of once per field
+abstract class RowMapper<T> {
+
+    // Look up the indices of the columns this mapper reads
+    protected abstract void resolveColumns(Cursor cursor);
+
+    // Build a model from the current row
+    protected abstract T mapRow(Cursor cursor);
+
+    // Map every row into the list, then close the cursor
+    List<T> readAll(Cursor cursor, List<T> into) {
+        try {
+            resolveColumns(cursor);
+            while (cursor.moveToNext()) {
+                into.add(mapRow(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return into;
+    }
+
+    // Map the first row or return null, then close the cursor
+    T readFirst(Cursor cursor) {
+        try {
+            resolveColumns(cursor);
+            return cursor.moveToFirst() ? mapRow(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+}
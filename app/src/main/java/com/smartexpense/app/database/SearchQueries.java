@@ -0,0 +1,47 @@
+package com.smartexpense.app.database;
+
+import java.util.Locale;
+
+// Turns search input into FTS and LIKE patterns, free of Android so it can be unit tested
+final class SearchQueries {
+
+    private SearchQueries() {
+    }
+
+    // Turn user input into an FTS query like "coff* sho*", or null if it has no words
+    static String buildMatchQuery(String query) {
+        StringBuilder match = new StringBuilder();
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                // Lower case so words like OR or NOT are never read as operators
+                match.append(query.substring(start, i).toLowerCase(Locale.ROOT)).append('*');
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    // Match %, _ and the escape character itself literally in a LIKE pattern using ESCAPE '\'
+    static String escapeLike(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
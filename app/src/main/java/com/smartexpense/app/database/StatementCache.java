@@ -0,0 +1,88 @@
+package com.smartexpense.app.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Precompiled statements for hot single-value queries (sums, counts, existence checks)
+public class StatementCache {
+
+    private DatabaseHelper dbHelper;
+    private Map<String, SQLiteStatement> statements = new HashMap<>();
+    private SQLiteDatabase compiledOn;
+
+    StatementCache(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    // Run a query returning exactly one row and read its first column as a long
+    public long queryForLong(String sql, Object... args) {
+        SQLiteStatement statement = getStatement(sql);
+        synchronized (statement) {
+            bind(statement, args);
+            try {
+                return statement.simpleQueryForLong();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    // Run a query returning exactly one row and read its first column as a string
+    public String queryForString(String sql, Object... args) {
+        SQLiteStatement statement = getStatement(sql);
+        synchronized (statement) {
+            bind(statement, args);
+            try {
+                return statement.simpleQueryForString();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    // Close every statement, only when the connection they were compiled on is gone
+    private synchronized void clear() {
+        for (SQLiteStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+        compiledOn = null;
+    }
+
+    private SQLiteStatement getStatement(String sql) {
+        // Fetched outside our lock so the two locks are never held together
+        SQLiteDatabase db = dbHelper.getDatabase();
+
+        synchronized (this) {
+            if (db != compiledOn) {
+                clear();
+                compiledOn = db;
+            }
+
+            SQLiteStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    private static void bind(SQLiteStatement statement, Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                statement.bindNull(i + 1);
+            } else if (arg instanceof Long || arg instanceof Integer) {
+                statement.bindLong(i + 1, ((Number) arg).longValue());
+            } else if (arg instanceof Double || arg instanceof Float) {
+                statement.bindDouble(i + 1, ((Number) arg).doubleValue());
+            } else {
+                statement.bindString(i + 1, arg.toString());
+            }
+        }
+    }
+}
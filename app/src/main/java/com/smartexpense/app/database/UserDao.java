@@ -8,6 +8,15 @@ import com.smartexpense.app.model.User;
 
 public class UserDao {
 
+    private static final String SQL_EMAIL_EXISTS =
+        "SELECT EXISTS(SELECT 1 FROM " + DatabaseHelper.TABLE_USERS + " WHERE " +
+        DatabaseHelper.COLUMN_USER_EMAIL + " = ?)";
+
+    private static final String SQL_SECURITY_ANSWER_MATCHES =
+        "SELECT EXISTS(SELECT 1 FROM " + DatabaseHelper.TABLE_USERS + " WHERE " +
+        DatabaseHelper.COLUMN_USER_EMAIL + " = ? AND " +
+        DatabaseHelper.COLUMN_USER_SECURITY_ANSWER + " = ?)";
+
     private DatabaseHelper dbHelper;
 
     public UserDao(DatabaseHelper dbHelper) {
@@ -16,7 +25,7 @@ public class UserDao {
 
     // Create user
     public long createUser(User user) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         ContentValues values = new ContentValues();
         values.put(DatabaseHelper.COLUMN_USER_USERNAME, user.getUsername());
@@ -26,126 +35,69 @@ public class UserDao {
         values.put(DatabaseHelper.COLUMN_USER_SECURITY_ANSWER, user.getSecurityAnswer());
 
         long id = db.insert(DatabaseHelper.TABLE_USERS, null, values);
-        db.close();
 
         return id;
     }
 
     // Get user by email
     public User getUserByEmail(String email) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        User user = null;
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         Cursor cursor = db.query(
             DatabaseHelper.TABLE_USERS,
-            null,
+            UserMapper.PROJECTION,
             DatabaseHelper.COLUMN_USER_EMAIL + " = ?",
             new String[]{email},
             null, null, null
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            user = cursorToUser(cursor);
-            cursor.close();
-        }
-
-        db.close();
-        return user;
+        return new UserMapper().readFirst(cursor);
     }
 
     // Get user by ID
     public User getUserById(int userId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        User user = null;
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         Cursor cursor = db.query(
             DatabaseHelper.TABLE_USERS,
-            null,
+            UserMapper.PROJECTION,
             DatabaseHelper.COLUMN_USER_ID + " = ?",
             new String[]{String.valueOf(userId)},
             null, null, null
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            user = cursorToUser(cursor);
-            cursor.close();
-        }
-
-        db.close();
-        return user;
+        return new UserMapper().readFirst(cursor);
     }
 
     // Check if email exists
     public boolean isEmailExists(String email) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        Cursor cursor = db.query(
-            DatabaseHelper.TABLE_USERS,
-            new String[]{DatabaseHelper.COLUMN_USER_ID},
-            DatabaseHelper.COLUMN_USER_EMAIL + " = ?",
-            new String[]{email},
-            null, null, null
-        );
-
-        boolean exists = cursor != null && cursor.getCount() > 0;
-
-        if (cursor != null) {
-            cursor.close();
-        }
-        db.close();
-
-        return exists;
+        return dbHelper.getStatementCache().queryForLong(SQL_EMAIL_EXISTS, email) != 0;
     }
 
     // Validate login
     public User validateLogin(String email, String password) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        User user = null;
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         Cursor cursor = db.query(
             DatabaseHelper.TABLE_USERS,
-            null,
+            UserMapper.PROJECTION,
             DatabaseHelper.COLUMN_USER_EMAIL + " = ? AND " +
             DatabaseHelper.COLUMN_USER_PASSWORD + " = ?",
             new String[]{email, password},
             null, null, null
         );
 
-        if (cursor != null && cursor.moveToFirst()) {
-            user = cursorToUser(cursor);
-            cursor.close();
-        }
-
-        db.close();
-        return user;
+        return new UserMapper().readFirst(cursor);
     }
 
     // Validate security answer
     public boolean validateSecurityAnswer(String email, String answer) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        Cursor cursor = db.query(
-            DatabaseHelper.TABLE_USERS,
-            new String[]{DatabaseHelper.COLUMN_USER_ID},
-            DatabaseHelper.COLUMN_USER_EMAIL + " = ? AND " +
-            DatabaseHelper.COLUMN_USER_SECURITY_ANSWER + " = ?",
-            new String[]{email, answer},
-            null, null, null
-        );
-
-        boolean valid = cursor != null && cursor.getCount() > 0;
-
-        if (cursor != null) {
-            cursor.close();
-        }
-        db.close();
-
-        return valid;
+        return dbHelper.getStatementCache().queryForLong(SQL_SECURITY_ANSWER_MATCHES, email, answer) != 0;
     }
 
     // Update password
     public boolean updatePassword(String email, String newPassword) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteDatabase db = dbHelper.getDatabase();
 
         ContentValues values = new ContentValues();
         values.put(DatabaseHelper.COLUMN_USER_PASSWORD, newPassword);
@@ -156,21 +108,6 @@ public class UserDao {
             DatabaseHelper.COLUMN_USER_EMAIL + " = ?",
             new String[]{email}
         );
-
-        db.close();
         return rows > 0;
     }
-
-    // Helper method to convert cursor to User object
-    private User cursorToUser(Cursor cursor) {
-        return new User(
-            cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID)),
-            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_USERNAME)),
-            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_EMAIL)),
-            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_PASSWORD)),
-            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_SECURITY_QUESTION)),
-            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_SECURITY_ANSWER))
-        );
-    }
 }
-
@@ -0,0 +1,46 @@
+package com.smartexpense.app.database;
+
+import android.database.Cursor;
+
+import com.smartexpense.app.model.User;
+
+final class UserMapper extends RowMapper<User> {
+
+    static final String[] PROJECTION = {
+        DatabaseHelper.COLUMN_USER_ID,
+        DatabaseHelper.COLUMN_USER_USERNAME,
+        DatabaseHelper.COLUMN_USER_EMAIL,
+        DatabaseHelper.COLUMN_USER_PASSWORD,
+        DatabaseHelper.COLUMN_USER_SECURITY_QUESTION,
+        DatabaseHelper.COLUMN_USER_SECURITY_ANSWER
+    };
+
+    private int idIndex;
+    private int usernameIndex;
+    private int emailIndex;
+    private int passwordIndex;
+    private int securityQuestionIndex;
+    private int securityAnswerIndex;
+
+    @Override
+    protected void resolveColumns(Cursor cursor) {
+        idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID);
+        usernameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_USERNAME);
+        emailIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_EMAIL);
+        passwordIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_PASSWORD);
+        securityQuestionIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_SECURITY_QUESTION);
+        securityAnswerIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_SECURITY_ANSWER);
+    }
+
+    @Override
+    protected User mapRow(Cursor cursor) {
+        return new User(
+            cursor.getInt(idIndex),
+            cursor.getString(usernameIndex),
+            cursor.getString(emailIndex),
+            cursor.getString(passwordIndex),
+            cursor.getString(securityQuestionIndex),
+            cursor.getString(securityAnswerIndex)
+        );
+    }
+}
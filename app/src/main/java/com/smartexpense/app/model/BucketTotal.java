@@ -0,0 +1,46 @@
+package com.smartexpense.app.model;
+
+import java.util.Objects;
+
+// Spending in one day, week, month or year bucket
+public class BucketTotal {
+    // Local calendar day the bucket starts on, counted from 1970-01-01
+    private final long startDay;
+    private final Money total;
+    private final int count;
+
+    public BucketTotal(long startDay, Money total, int count) {
+        this.startDay = startDay;
+        this.total = total;
+        this.count = count;
+    }
+
+    public long getStartDay() {
+        return startDay;
+    }
+
+    public Money getTotal() {
+        return total;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BucketTotal)) {
+            return false;
+        }
+        BucketTotal other = (BucketTotal) o;
+        return startDay == other.startDay && count == other.count && Objects.equals(total, other.total);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startDay, total, count);
+    }
+}
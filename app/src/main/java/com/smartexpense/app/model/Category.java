@@ -0,0 +1,63 @@
+package com.smartexpense.app.model;
+
+import java.util.Objects;
+
+// Built-in or user-defined expense category with its display color (ARGB)
+public final class Category {
+    private final int id;
+    // 0 for built-in categories shared by every user
+    private final int userId;
+    private final String name;
+    private final int color;
+
+    public Category(int id, int userId, String name, int color) {
+        this.id = id;
+        this.userId = userId;
+        this.name = name;
+        this.color = color;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public boolean isBuiltIn() {
+        return userId == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Category)) {
+            return false;
+        }
+        Category other = (Category) o;
+        return id == other.id && userId == other.userId && color == other.color
+            && Objects.equals(name, other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, userId, name, color);
+    }
+
+    // Shown as is by ArrayAdapter
+    @Override
+    public String toString() {
+        return name;
+    }
+}
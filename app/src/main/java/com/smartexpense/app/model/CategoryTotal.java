@@ -1,12 +1,35 @@
 package com.smartexpense.app.model;
 
+import java.util.Objects;
+
 public class CategoryTotal {
+    private int categoryId;
     private String category;
-    private double total;
+    private Money total;
+    private int count;
+
+    public CategoryTotal(String category, Money total) {
+        this.category = category;
+        this.total = total;
+    }
 
-    public CategoryTotal(String category, double total) {
+    public CategoryTotal(String category, Money total, int count) {
         this.category = category;
         this.total = total;
+        this.count = count;
+    }
+
+    public CategoryTotal(int categoryId, String category, Money total, int count) {
+        this(category, total, count);
+        this.categoryId = categoryId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
     }
 
     public String getCategory() {
@@ -17,12 +40,39 @@ public class CategoryTotal {
         this.category = category;
     }
 
-    public double getTotal() {
+    public Money getTotal() {
         return total;
     }
 
-    public void setTotal(double total) {
+    public void setTotal(Money total) {
         this.total = total;
     }
-}
 
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CategoryTotal)) {
+            return false;
+        }
+        CategoryTotal other = (CategoryTotal) o;
+        return categoryId == other.categoryId
+            && count == other.count
+            && Objects.equals(category, other.category)
+            && Objects.equals(total, other.total);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(categoryId, category, total, count);
+    }
+}
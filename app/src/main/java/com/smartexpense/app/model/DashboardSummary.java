@@ -0,0 +1,47 @@
+package com.smartexpense.app.model;
+
+import java.util.Objects;
+
+// Dashboard totals read together from one consistent snapshot
+public class DashboardSummary {
+    private final Money todayTotal;
+    private final Money weekTotal;
+    private final Money monthTotal;
+
+    public DashboardSummary(Money todayTotal, Money weekTotal, Money monthTotal) {
+        this.todayTotal = todayTotal;
+        this.weekTotal = weekTotal;
+        this.monthTotal = monthTotal;
+    }
+
+    public Money getTodayTotal() {
+        return todayTotal;
+    }
+
+    public Money getWeekTotal() {
+        return weekTotal;
+    }
+
+    public Money getMonthTotal() {
+        return monthTotal;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DashboardSummary)) {
+            return false;
+        }
+        DashboardSummary other = (DashboardSummary) o;
+        return todayTotal.equals(other.todayTotal)
+            && weekTotal.equals(other.weekTotal)
+            && monthTotal.equals(other.monthTotal);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(todayTotal, weekTotal, monthTotal);
+    }
+}
@@ -3,7 +3,9 @@ package com.smartexpense.app.model;
 public class Expense {
     private int id;
     private int userId;
-    private double amount;
+    private Money amount;
+    // 0 until the category name has been resolved to a row of the categories table
+    private int categoryId;
     private String category;
     private String description;
     private long date; // timestamp in milliseconds
@@ -11,7 +13,7 @@ public class Expense {
     public Expense() {
     }
 
-    public Expense(int userId, double amount, String category, String description, long date) {
+    public Expense(int userId, Money amount, String category, String description, long date) {
         this.userId = userId;
         this.amount = amount;
         this.category = category;
@@ -19,7 +21,7 @@ public class Expense {
         this.date = date;
     }
 
-    public Expense(int id, int userId, double amount, String category, String description, long date) {
+    public Expense(int id, int userId, Money amount, String category, String description, long date) {
         this.id = id;
         this.userId = userId;
         this.amount = amount;
@@ -28,6 +30,12 @@ public class Expense {
         this.date = date;
     }
 
+    public Expense(int id, int userId, Money amount, int categoryId, String category,
+                   String description, long date) {
+        this(id, userId, amount, category, description, date);
+        this.categoryId = categoryId;
+    }
+
     // Getters and Setters
     public int getId() {
         return id;
@@ -45,14 +53,22 @@ public class Expense {
         this.userId = userId;
     }
 
-    public double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
     public String getCategory() {
         return category;
     }
@@ -0,0 +1,38 @@
+package com.smartexpense.app.model;
+
+import java.util.List;
+
+public class ExpensePage {
+    // Key to pass for the first page, sorts after every real (date, id)
+    public static final long FIRST_PAGE_DATE = Long.MAX_VALUE;
+    public static final int FIRST_PAGE_ID = Integer.MAX_VALUE;
+
+    private int generation;
+    private int pageIndex;
+    private List<Expense> expenses;
+    private boolean lastPage;
+
+    public ExpensePage(int generation, int pageIndex, List<Expense> expenses, boolean lastPage) {
+        this.generation = generation;
+        this.pageIndex = pageIndex;
+        this.expenses = expenses;
+        this.lastPage = lastPage;
+    }
+
+    // Getters
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public List<Expense> getExpenses() {
+        return expenses;
+    }
+
+    public boolean isLastPage() {
+        return lastPage;
+    }
+}
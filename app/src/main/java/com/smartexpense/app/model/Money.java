@@ -0,0 +1,97 @@
+package com.smartexpense.app.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Exact amount of money stored as a whole number of minor units (cents)
+public final class Money implements Comparable<Money> {
+
+    // Digits after the decimal point
+    public static final int SCALE = 2;
+    public static final long MINOR_UNITS_PER_MAJOR = 100;
+
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    // Parse user input like "12.5", rounding half up to whole cents
+    public static Money parse(String amount) {
+        BigDecimal value = new BigDecimal(amount.trim()).setScale(SCALE, RoundingMode.HALF_UP);
+        return ofMinorUnits(value.unscaledValue().longValueExact());
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    // Approximate value for charts, never use it for arithmetic
+    public float toFloat() {
+        return minorUnits / (float) MINOR_UNITS_PER_MAJOR;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    // Append as plain text like "-12.05" without allocating
+    public static void appendPlain(StringBuilder builder, long minorUnits) {
+        long major = minorUnits / MINOR_UNITS_PER_MAJOR;
+        long cents = minorUnits % MINOR_UNITS_PER_MAJOR;
+        if (minorUnits < 0) {
+            builder.append('-');
+            major = -major;
+            cents = -cents;
+        }
+        builder.append(major).append('.');
+        if (cents < 10) {
+            builder.append('0');
+        }
+        builder.append(cents);
+    }
+
+    public String toPlainString() {
+        StringBuilder builder = new StringBuilder(24);
+        appendPlain(builder, minorUnits);
+        return builder.toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (minorUnits ^ (minorUnits >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString();
+    }
+}
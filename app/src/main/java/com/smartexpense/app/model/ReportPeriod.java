@@ -0,0 +1,10 @@
+package com.smartexpense.app.model;
+
+// Preset date ranges for reports, resolved against the current local date
+public enum ReportPeriod {
+    THIS_MONTH,
+    LAST_MONTH,
+    LAST_30_DAYS,
+    THIS_YEAR,
+    ALL_TIME
+}
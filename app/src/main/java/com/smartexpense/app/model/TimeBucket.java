@@ -0,0 +1,10 @@
+package com.smartexpense.app.model;
+
+// Calendar unit totals are grouped by, boundaries follow the local time zone
+public enum TimeBucket {
+    DAY,
+    // Starts on the locale's first day of the week
+    WEEK,
+    MONTH,
+    YEAR
+}
@@ -8,10 +8,11 @@ import com.smartexpense.app.model.User;
 
 public class AuthRepository {
 
+    private DatabaseHelper dbHelper;
     private UserDao userDao;
 
     public AuthRepository(Context context) {
-        DatabaseHelper dbHelper = DatabaseHelper.getInstance(context);
+        dbHelper = DatabaseHelper.getInstance(context);
         userDao = new UserDao(dbHelper);
     }
 
@@ -44,4 +45,3 @@ public class AuthRepository {
         return userDao.updatePassword(email, newPassword);
     }
 }
-
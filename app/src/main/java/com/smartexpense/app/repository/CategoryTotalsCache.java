@@ -0,0 +1,119 @@
+package com.smartexpense.app.repository;
+
+import com.smartexpense.app.database.DatabaseHelper;
+import com.smartexpense.app.database.InvalidationTracker;
+import com.smartexpense.app.model.CategoryTotal;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// App-wide cache of category breakdowns for closed periods, those that ended before now.
+// Such a breakdown only changes when a write touches its dates, which removes it here.
+public class CategoryTotalsCache implements InvalidationTracker.Observer {
+
+    private static final int MAX_ENTRIES = 32;
+
+    // Tables whose changes can alter a breakdown
+    private static final String[] TABLES = {
+        DatabaseHelper.TABLE_EXPENSES, DatabaseHelper.TABLE_DAILY_TOTALS
+    };
+
+    private static CategoryTotalsCache instance;
+
+    // Least recently used range first
+    private final LinkedHashMap<Key, List<CategoryTotal>> entries =
+        new LinkedHashMap<Key, List<CategoryTotal>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<CategoryTotal>> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    // Bumped on every change so a load that raced with a write is not cached
+    private long version;
+
+    public static synchronized CategoryTotalsCache getInstance(InvalidationTracker tracker) {
+        if (instance == null) {
+            instance = new CategoryTotalsCache();
+            tracker.addObserver(instance);
+        }
+        return instance;
+    }
+
+    // True if breakdowns of this range may be cached
+    public static boolean isClosed(long endDate) {
+        return endDate < System.currentTimeMillis();
+    }
+
+    // Cached breakdown of a range, or null
+    public synchronized List<CategoryTotal> get(int userId, long startDate, long endDate) {
+        return entries.get(new Key(userId, startDate, endDate));
+    }
+
+    // Take this before loading from the database and pass it to put()
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // Cache a freshly loaded breakdown, ignored if anything changed since loadedVersion.
+    // Returns the immutable list callers should use.
+    public synchronized List<CategoryTotal> put(int userId, long startDate, long endDate,
+                                                List<CategoryTotal> categoryTotals, long loadedVersion) {
+        List<CategoryTotal> snapshot = Collections.unmodifiableList(categoryTotals);
+        if (loadedVersion == version) {
+            entries.put(new Key(userId, startDate, endDate), snapshot);
+        }
+        return snapshot;
+    }
+
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+
+    @Override
+    public synchronized void onInvalidated(InvalidationTracker.Change change) {
+        version++;
+        Iterator<Key> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            Key key = iterator.next();
+            if (change.overlaps(TABLES, key.userId, key.startDate, key.endDate)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Key {
+        final int userId;
+        final long startDate;
+        final long endDate;
+
+        Key(int userId, long startDate, long endDate) {
+            this.userId = userId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId == other.userId && startDate == other.startDate && endDate == other.endDate;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = userId;
+            result = 31 * result + (int) (startDate ^ (startDate >>> 32));
+            result = 31 * result + (int) (endDate ^ (endDate >>> 32));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.smartexpense.app.repository;
+
+import com.smartexpense.app.database.ExpenseDao;
+import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.Money;
+import com.smartexpense.app.utils.ValidationUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+// Streams expenses from CSV into the database in chunked transactions.
+// Parsing runs on the calling thread; each chunk is committed as its own task on the write
+// executor, so other writes get their turn between chunks. One chunk is parsed ahead of the database.
+public class ExpenseCsvImporter {
+
+    // Rows committed per transaction
+    public static final int CHUNK_SIZE = 1000;
+    // Only the first errors are kept so a broken file cannot exhaust memory
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    // Characters buffered per row, longer rows are rejected, e.g. after an unterminated quote
+    public static final int MAX_RECORD_LENGTH = 16 * 1024;
+
+    // Header names, matched case-insensitively
+    public static final String HEADER_DATE = "date";
+    public static final String HEADER_CATEGORY = "category";
+    public static final String HEADER_DESCRIPTION = "description";
+    public static final String HEADER_AMOUNT = "amount";
+
+    private ExpenseDao expenseDao;
+    private Executor writeExecutor;
+    private volatile boolean cancelled;
+    // Chunk handed to the write executor and not yet waited for
+    private FutureTask<Integer> pendingCommit;
+
+    public interface ProgressListener {
+        void onProgress(int rowsRead, int rowsImported);
+    }
+
+    // A rejected row and why
+    public static class RowError {
+        private int lineNumber;
+        private String message;
+
+        public RowError(int lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    // Outcome of one import
+    public static class Result {
+        private int imported;
+        private int rejected;
+        private boolean cancelled;
+        private List<RowError> errors = new ArrayList<>();
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public List<RowError> getErrors() {
+            return errors;
+        }
+    }
+
+    public ExpenseCsvImporter(ExpenseDao expenseDao, Executor writeExecutor) {
+        this.expenseDao = expenseDao;
+        this.writeExecutor = writeExecutor;
+    }
+
+    // Stop after the current chunk, rows already committed are kept
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Import every valid row of the stream for the given user. Call off the write executor,
+    // it waits for the chunks it submits there.
+    public Result importExpenses(InputStream input, int userId, ProgressListener listener) throws IOException {
+        Result result = new Result();
+        CsvReader reader = new CsvReader(
+            new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+
+        List<String> header = reader.readRecord();
+        if (header == null) {
+            return result;
+        }
+        if (reader.isRecordTooLong()) {
+            throw new IOException("CSV header is longer than " + MAX_RECORD_LENGTH + " characters");
+        }
+
+        int dateColumn = indexOf(header, HEADER_DATE);
+        int categoryColumn = indexOf(header, HEADER_CATEGORY);
+        int descriptionColumn = indexOf(header, HEADER_DESCRIPTION);
+        int amountColumn = indexOf(header, HEADER_AMOUNT);
+        if (dateColumn < 0 || categoryColumn < 0 || descriptionColumn < 0 || amountColumn < 0) {
+            throw new IOException("CSV header must contain date, category, description and amount");
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        dateFormat.setLenient(false);
+
+        List<Expense> chunk = new ArrayList<>(CHUNK_SIZE);
+        int rowsRead = 0;
+        List<String> record;
+
+        while (!cancelled && (record = reader.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+                continue;
+            }
+
+            rowsRead++;
+            int lineNumber = reader.getRecordLine();
+
+            if (reader.isRecordTooLong()) {
+                reject(result, lineNumber, "Row is longer than " + MAX_RECORD_LENGTH + " characters");
+                continue;
+            }
+
+            String amount = field(record, amountColumn);
+            String category = field(record, categoryColumn);
+            String description = field(record, descriptionColumn);
+            String date = field(record, dateColumn);
+
+            String error = null;
+            long timestamp = 0;
+            if (!ValidationUtils.isValidAmount(amount)) {
+                error = "Invalid amount";
+            } else if (!ValidationUtils.isNotEmpty(category)) {
+                error = "Category is required";
+            } else if (!ValidationUtils.isNotEmpty(description)) {
+                error = "Description is required";
+            } else {
+                try {
+                    timestamp = parseDate(date, dateFormat);
+                } catch (ParseException e) {
+                    error = "Invalid date";
+                }
+            }
+
+            if (error != null) {
+                reject(result, lineNumber, error);
+                continue;
+            }
+
+            chunk.add(new Expense(userId, Money.parse(amount), category, description, timestamp));
+            if (chunk.size() == CHUNK_SIZE) {
+                result.imported += commit(chunk);
+                if (listener != null) {
+                    listener.onProgress(rowsRead, result.imported);
+                }
+            }
+        }
+
+        if (!chunk.isEmpty() && !cancelled) {
+            result.imported += commit(chunk);
+        }
+        result.imported += awaitCommit();
+        result.cancelled = cancelled;
+        if (listener != null) {
+            listener.onProgress(rowsRead, result.imported);
+        }
+        return result;
+    }
+
+    private static void reject(Result result, int lineNumber, String error) {
+        result.rejected++;
+        if (result.errors.size() < MAX_REPORTED_ERRORS) {
+            result.errors.add(new RowError(lineNumber, error));
+        }
+    }
+
+    // Submit a chunk for commit once the previous one is done, returns the rows that one committed
+    private int commit(List<Expense> chunk) throws IOException {
+        int committed = awaitCommit();
+        List<Expense> rows = new ArrayList<>(chunk);
+        chunk.clear();
+        pendingCommit = new FutureTask<>(() -> {
+            expenseDao.createExpenses(rows);
+            return rows.size();
+        });
+        writeExecutor.execute(pendingCommit);
+        return committed;
+    }
+
+    // Wait for the chunk being committed, returns its row count or 0 when there is none
+    private int awaitCommit() throws IOException {
+        FutureTask<Integer> commit = pendingCommit;
+        if (commit == null) {
+            return 0;
+        }
+        pendingCommit = null;
+        try {
+            return commit.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static int indexOf(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> record, int column) {
+        return column < record.size() ? record.get(column).trim() : "";
+    }
+
+    // Accepts yyyy-MM-dd or epoch milliseconds
+    private static long parseDate(String value, SimpleDateFormat dateFormat) throws ParseException {
+        if (value.isEmpty()) {
+            throw new ParseException(value, 0);
+        }
+        boolean digitsOnly = true;
+        for (int i = 0; i < value.length() && digitsOnly; i++) {
+            digitsOnly = Character.isDigit(value.charAt(i));
+        }
+        if (digitsOnly) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new ParseException(value, 0);
+            }
+        }
+        return dateFormat.parse(value).getTime();
+    }
+
+    // Minimal RFC 4180 reader: quoted fields, doubled quotes and line breaks inside quotes.
+    // A leading byte order mark is skipped. A record longer than MAX_RECORD_LENGTH stops being
+    // buffered at the end of its current line, so an unterminated quote costs one row, not the file.
+    static class CsvReader {
+        private Reader reader;
+        private StringBuilder field = new StringBuilder();
+        private int line = 1;
+        private int recordLine;
+        private int recordLength;
+        private boolean recordTooLong;
+        private boolean started;
+        private int pushback = -2;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        // Line the last record started on
+        int getRecordLine() {
+            return recordLine;
+        }
+
+        // True if the last record was cut short for being too long, its fields are incomplete
+        boolean isRecordTooLong() {
+            return recordTooLong;
+        }
+
+        List<String> readRecord() throws IOException {
+            int c = read();
+            if (!started) {
+                started = true;
+                // Excel's "CSV UTF-8" starts with a byte order mark
+                if (c == '\uFEFF') {
+                    c = read();
+                }
+            }
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            recordLength = 0;
+            recordTooLong = false;
+
+            List<String> record = new ArrayList<>();
+            boolean quoted = false;
+            field.setLength(0);
+
+            while (true) {
+                if (++recordLength > MAX_RECORD_LENGTH) {
+                    recordTooLong = true;
+                    skipLine(c);
+                    break;
+                }
+                if (quoted) {
+                    if (c == -1) {
+                        break;
+                    } else if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') {
+                            unread(next);
+                        }
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+
+            record.add(field.toString());
+            return record;
+        }
+
+        // Drop the rest of the current line, c is the character already read
+        private void skipLine(int c) throws IOException {
+            while (c != '\n' && c != -1) {
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            int c;
+            if (pushback != -2) {
+                c = pushback;
+                pushback = -2;
+            } else {
+                c = reader.read();
+            }
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        private void unread(int c) {
+            if (c == '\n') {
+                line--;
+            }
+            pushback = c;
+        }
+    }
+}
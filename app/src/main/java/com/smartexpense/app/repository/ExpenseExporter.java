@@ -0,0 +1,223 @@
+package com.smartexpense.app.repository;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+import com.smartexpense.app.database.CategoryRegistry;
+import com.smartexpense.app.database.ExpenseDao;
+import com.smartexpense.app.model.Money;
+import com.smartexpense.app.utils.CalendarPeriods;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+// Streams a user's expenses from a cursor straight into CSV or JSON
+public class ExpenseExporter {
+
+    public static final int FORMAT_CSV = 0;
+    public static final int FORMAT_JSON = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Rows between two progress callbacks
+    private static final int PROGRESS_INTERVAL = 500;
+
+    private ExpenseDao expenseDao;
+    private CategoryRegistry categoryRegistry;
+    private volatile boolean cancelled;
+
+    // Buffers reused for every row so the export allocates nothing per row
+    private CharArrayBuffer categoryBuffer = new CharArrayBuffer(64);
+    // Category held in categoryBuffer, rows are usually grouped by few categories
+    private int bufferedCategoryId = -1;
+    private CharArrayBuffer descriptionBuffer = new CharArrayBuffer(256);
+    private StringBuilder row = new StringBuilder(512);
+    private char[] rowChars = new char[512];
+
+    public ExpenseExporter(ExpenseDao expenseDao, CategoryRegistry categoryRegistry) {
+        this.expenseDao = expenseDao;
+        this.categoryRegistry = categoryRegistry;
+    }
+
+    // Stop after the current row, the output is left incomplete
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Write matching expenses to output and return the number of rows written.
+    // Use Long.MIN_VALUE / Long.MAX_VALUE for an open date range and a null category for all.
+    public int export(int userId, long startDate, long endDate, String category,
+                      int format, boolean gzip, OutputStream output,
+                      ExpenseDao.ProgressListener listener) throws IOException {
+        int total = expenseDao.countExpensesForExport(userId, startDate, endDate, category);
+
+        OutputStream stream = gzip ? new GZIPOutputStream(output, BUFFER_SIZE) : output;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        int written = 0;
+        Cursor cursor = expenseDao.queryExpensesForExport(userId, startDate, endDate, category);
+        try {
+            writer.write(format == FORMAT_JSON ? "[" : "date,category,description,amount\n");
+
+            while (!cancelled && cursor.moveToNext()) {
+                long date = cursor.getLong(0);
+                copyCategoryToBuffer(cursor.getInt(1));
+                cursor.copyStringToBuffer(2, descriptionBuffer);
+                long amount = cursor.getLong(3);
+                long epochDay = CalendarPeriods.toEpochDay(date);
+
+                row.setLength(0);
+                if (format == FORMAT_JSON) {
+                    appendJsonRow(written, epochDay, amount);
+                } else {
+                    appendCsvRow(epochDay, amount);
+                }
+                writeRow(writer);
+
+                written++;
+                if (listener != null && written % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(written, total);
+                }
+            }
+
+            if (format == FORMAT_JSON) {
+                writer.write(written > 0 ? "\n]\n" : "]\n");
+            }
+        } finally {
+            cursor.close();
+            writer.close();
+        }
+
+        if (listener != null) {
+            listener.onProgress(written, total);
+        }
+        return written;
+    }
+
+    private void appendCsvRow(long epochDay, long amount) {
+        appendIsoDate(epochDay);
+        row.append(',');
+        appendCsvField(categoryBuffer);
+        row.append(',');
+        appendCsvField(descriptionBuffer);
+        row.append(',');
+        Money.appendPlain(row, amount);
+        row.append('\n');
+    }
+
+    private void appendJsonRow(int index, long epochDay, long amount) {
+        row.append(index == 0 ? "\n" : ",\n");
+        row.append("{\"date\":\"");
+        appendIsoDate(epochDay);
+        row.append("\",\"category\":");
+        appendJsonString(categoryBuffer);
+        row.append(",\"description\":");
+        appendJsonString(descriptionBuffer);
+        row.append(",\"amount\":");
+        Money.appendPlain(row, amount);
+        row.append('}');
+    }
+
+    private void copyCategoryToBuffer(int categoryId) {
+        if (categoryId == bufferedCategoryId) {
+            return;
+        }
+        String name = categoryRegistry.getName(categoryId);
+        int length = name != null ? name.length() : 0;
+        if (categoryBuffer.data.length < length) {
+            categoryBuffer.data = new char[length];
+        }
+        if (name != null) {
+            name.getChars(0, length, categoryBuffer.data, 0);
+        }
+        categoryBuffer.sizeCopied = length;
+        bufferedCategoryId = categoryId;
+    }
+
+    private void writeRow(Writer writer) throws IOException {
+        int length = row.length();
+        if (rowChars.length < length) {
+            rowChars = new char[Math.max(length, rowChars.length * 2)];
+        }
+        row.getChars(0, length, rowChars, 0);
+        writer.write(rowChars, 0, length);
+    }
+
+    // Quote only when the field contains a separator, quote or line break
+    private void appendCsvField(CharArrayBuffer buffer) {
+        boolean needsQuotes = false;
+        for (int i = 0; i < buffer.sizeCopied && !needsQuotes; i++) {
+            char c = buffer.data[i];
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            row.append(buffer.data, 0, buffer.sizeCopied);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < buffer.sizeCopied; i++) {
+            char c = buffer.data[i];
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    private void appendJsonString(CharArrayBuffer buffer) {
+        row.append('"');
+        for (int i = 0; i < buffer.sizeCopied; i++) {
+            char c = buffer.data[i];
+            switch (c) {
+                case '"':
+                    row.append("\\\"");
+                    break;
+                case '\\':
+                    row.append("\\\\");
+                    break;
+                case '\n':
+                    row.append("\\n");
+                    break;
+                case '\r':
+                    row.append("\\r");
+                    break;
+                case '\t':
+                    row.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        row.append("\\u00");
+                        row.append(Character.forDigit(c >> 4, 16));
+                        row.append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        row.append(c);
+                    }
+            }
+        }
+        row.append('"');
+    }
+
+    // Append a local epoch day as yyyy-MM-dd without going through Calendar
+    private void appendIsoDate(long epochDay) {
+        long date = CalendarPeriods.civilDate(epochDay);
+        appendPadded(date / 10000, 4);
+        row.append('-');
+        appendPadded(date / 100 % 100, 2);
+        row.append('-');
+        appendPadded(date % 100, 2);
+    }
+
+    private void appendPadded(long value, int width) {
+        for (long limit = 10; width > 1; width--, limit *= 10) {
+            if (value < limit) {
+                row.append('0');
+            }
+        }
+        row.append(value);
+    }
+}
@@ -1,21 +1,41 @@
 package com.smartexpense.app.repository;
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.CancellationSignal;
 
+import com.smartexpense.app.database.CategoryRegistry;
 import com.smartexpense.app.database.DatabaseHelper;
 import com.smartexpense.app.database.ExpenseDao;
+import com.smartexpense.app.database.InvalidationTracker;
+import com.smartexpense.app.model.BucketTotal;
+import com.smartexpense.app.model.Category;
 import com.smartexpense.app.model.CategoryTotal;
+import com.smartexpense.app.model.DashboardSummary;
 import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.Money;
+import com.smartexpense.app.model.TimeBucket;
+import com.smartexpense.app.utils.CalendarPeriods;
 
 import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
 
 public class ExpenseRepository {
 
+    private static final String PREF_NAME = "SmartExpenseRollup";
+    private static final String KEY_TIME_ZONE = "timeZone";
+
+    private SharedPreferences rollupPreferences;
+    private DatabaseHelper dbHelper;
     private ExpenseDao expenseDao;
+    private CategoryTotalsCache categoryTotalsCache;
 
     public ExpenseRepository(Context context) {
-        DatabaseHelper dbHelper = DatabaseHelper.getInstance(context);
+        rollupPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        dbHelper = DatabaseHelper.getInstance(context);
         expenseDao = new ExpenseDao(dbHelper);
+        categoryTotalsCache = CategoryTotalsCache.getInstance(dbHelper.getInvalidationTracker());
     }
 
     // Add expense
@@ -23,9 +43,24 @@ public class ExpenseRepository {
         return expenseDao.createExpense(expense);
     }
 
-    // Get all expenses
-    public List<Expense> getAllExpenses(int userId) {
-        return expenseDao.getAllExpenses(userId);
+    // Add many expenses in one transaction
+    public long[] addExpenses(List<Expense> expenses, ExpenseDao.ProgressListener listener) {
+        return expenseDao.createExpenses(expenses, listener);
+    }
+
+    // Create an importer that commits its chunks through this repository's DAO on writeExecutor
+    public ExpenseCsvImporter createCsvImporter(Executor writeExecutor) {
+        return new ExpenseCsvImporter(expenseDao, writeExecutor);
+    }
+
+    // Create an exporter that reads through this repository's DAO
+    public ExpenseExporter createExporter() {
+        return new ExpenseExporter(expenseDao, dbHelper.getCategoryRegistry());
+    }
+
+    // Get one page of expenses after the given (date, id) key
+    public List<Expense> getExpensesPage(int userId, long afterDate, int afterId, int pageSize) {
+        return expenseDao.getExpensesPage(userId, afterDate, afterId, pageSize);
     }
 
     // Get expense by ID
@@ -48,6 +83,16 @@ public class ExpenseRepository {
         return expenseDao.searchExpenses(userId, query);
     }
 
+    // Search that can be abandoned through the signal
+    public List<Expense> searchExpenses(int userId, String query, CancellationSignal cancellationSignal) {
+        return expenseDao.searchExpenses(userId, query, cancellationSignal);
+    }
+
+    // Rebuild the search index
+    public void rebuildSearchIndex() {
+        expenseDao.rebuildSearchIndex();
+    }
+
     // Filter by category
     public List<Expense> getExpensesByCategory(int userId, String category) {
         return expenseDao.getExpensesByCategory(userId, category);
@@ -58,18 +103,28 @@ public class ExpenseRepository {
         return expenseDao.getExpensesByDateRange(userId, startDate, endDate);
     }
 
+    // Built-in categories followed by the user's own
+    public List<Category> getCategories(int userId) {
+        return dbHelper.getCategoryRegistry().getCategories(userId);
+    }
+
+    // Category names and colors
+    public CategoryRegistry getCategoryRegistry() {
+        return dbHelper.getCategoryRegistry();
+    }
+
     // Get today's total
-    public double getTodayTotal(int userId) {
+    public Money getTodayTotal(int userId) {
         return expenseDao.getTodayTotal(userId);
     }
 
     // Get week total
-    public double getWeekTotal(int userId) {
+    public Money getWeekTotal(int userId) {
         return expenseDao.getWeekTotal(userId);
     }
 
     // Get month total
-    public double getMonthTotal(int userId) {
+    public Money getMonthTotal(int userId) {
         return expenseDao.getMonthTotal(userId);
     }
 
@@ -77,5 +132,55 @@ public class ExpenseRepository {
     public List<CategoryTotal> getCategoryTotals(int userId) {
         return expenseDao.getCategoryTotals(userId);
     }
-}
 
+    // Get category totals over [startDate, endDate]. Ranges that already ended are served from
+    // memory after the first load until a write touches their dates.
+    public List<CategoryTotal> getCategoryTotals(int userId, long startDate, long endDate) {
+        if (!CategoryTotalsCache.isClosed(endDate)) {
+            return expenseDao.getCategoryTotals(userId, startDate, endDate);
+        }
+        List<CategoryTotal> cached = categoryTotalsCache.get(userId, startDate, endDate);
+        if (cached != null) {
+            return cached;
+        }
+        long version = categoryTotalsCache.getVersion();
+        return categoryTotalsCache.put(userId, startDate, endDate,
+            expenseDao.getCategoryTotals(userId, startDate, endDate), version);
+    }
+
+    // Get totals per day, week, month or year of a date range, categoryId 0 for every category
+    public List<BucketTotal> getTotalsByBucket(int userId, TimeBucket bucket, long startDate, long endDate,
+                                               int categoryId) {
+        return expenseDao.getTotalsByBucket(userId, bucket, startDate, endDate, categoryId);
+    }
+
+    // Get dashboard totals in one query
+    public DashboardSummary getDashboardSummary(int userId) {
+        return expenseDao.getDashboardSummary(userId);
+    }
+
+    // Rebuild the daily totals used by the dashboard
+    public void rebuildDailyTotals() {
+        expenseDao.rebuildDailyTotals();
+    }
+
+    // Rebuild the daily totals if the time zone changed since they were last written.
+    // Must run on the writer so no write lands on the old zone's days in between.
+    public void rebuildDailyTotalsIfTimeZoneChanged() {
+        TimeZone timeZone = CalendarPeriods.timeZone();
+        String rollupZoneId = rollupPreferences.getString(KEY_TIME_ZONE, null);
+        if (rollupZoneId != null && TimeZone.getTimeZone(rollupZoneId).hasSameRules(timeZone)) {
+            return;
+        }
+        // Nothing recorded yet, take the rollup as written in the current zone
+        if (rollupZoneId != null) {
+            expenseDao.rebuildDailyTotals();
+        }
+        rollupPreferences.edit().putString(KEY_TIME_ZONE, timeZone.getID()).apply();
+    }
+
+    // Change notifications for writes to the expense tables
+    public InvalidationTracker getInvalidationTracker() {
+        return dbHelper.getInvalidationTracker();
+    }
+}
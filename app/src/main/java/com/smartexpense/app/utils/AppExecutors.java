@@ -0,0 +1,202 @@
+package com.smartexpense.app.utils;
+
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// App-wide background threads for database work, shared by every screen.
+// Writes run one at a time on the writer lane, matching SQLite's single writer; reads run on a
+// small pool that WAL lets proceed alongside the writer. Work that never writes, like list diffs
+// and chart building, shares the reader pool instead of starting threads of its own. Imports and
+// exports hold their thread for a whole file, so they get a lane of their own and never take a
+// reader from the screens. Within a lane, higher priority tasks start first and equal priorities
+// keep submission order.
+public final class AppExecutors {
+
+    public enum Priority {
+        // The user is waiting on the result: a tap, a search, the next page
+        INTERACTIVE,
+        // Data for the screen being shown
+        NORMAL,
+        // Aggregation and other work nobody is watching right now
+        BACKGROUND
+    }
+
+    // The framework keeps up to four connections per WAL database, more readers would only queue
+    private static final int MAX_READER_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static AppExecutors instance;
+
+    private final Lane writer;
+    private final Lane reader;
+    private final Lane jobs;
+
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            int cpus = Runtime.getRuntime().availableProcessors();
+            instance = new AppExecutors(1, Math.max(2, Math.min(MAX_READER_THREADS, cpus)));
+        }
+        return instance;
+    }
+
+    private AppExecutors(int writerThreads, int readerThreads) {
+        writer = new Lane("db-writer", writerThreads);
+        reader = new Lane("db-reader", readerThreads);
+        jobs = new Lane("db-jobs", 1);
+    }
+
+    // Executor for work that writes, tasks never overlap
+    public Executor writer(Priority priority) {
+        return writer.executors[priority.ordinal()];
+    }
+
+    // Executor for read-only work
+    public Executor reader(Priority priority) {
+        return reader.executors[priority.ordinal()];
+    }
+
+    // Executor for long jobs that stream a whole file, like imports and exports. They run one at a
+    // time; a job that writes hands its transactions to the writer lane.
+    public Executor jobs() {
+        return jobs.executors[Priority.BACKGROUND.ordinal()];
+    }
+
+    public Stats getWriterStats() {
+        return writer.stats();
+    }
+
+    public Stats getReaderStats() {
+        return reader.stats();
+    }
+
+    public Stats getJobStats() {
+        return jobs.stats();
+    }
+
+    // Point-in-time counters of one lane, wait is the time a task spent queued before it started
+    public static final class Stats {
+        private final int queueDepth;
+        private final int activeCount;
+        private final long completedCount;
+        private final long averageWaitMillis;
+        private final long maxWaitMillis;
+
+        Stats(int queueDepth, int activeCount, long completedCount, long averageWaitMillis,
+              long maxWaitMillis) {
+            this.queueDepth = queueDepth;
+            this.activeCount = activeCount;
+            this.completedCount = completedCount;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public long getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "queued=" + queueDepth + " active=" + activeCount + " completed=" + completedCount +
+                " avgWait=" + averageWaitMillis + "ms maxWait=" + maxWaitMillis + "ms";
+        }
+    }
+
+    // A thread pool whose queue is ordered by priority, then by submission
+    private static final class Lane {
+        private final ThreadPoolExecutor pool;
+        private final Executor[] executors = new Executor[Priority.values().length];
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Lane(String name, int threads) {
+            AtomicInteger threadCount = new AtomicInteger();
+            pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }, name + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            for (Priority priority : Priority.values()) {
+                executors[priority.ordinal()] = command -> pool.execute(new Task(this, command, priority));
+            }
+        }
+
+        void recordWait(long waitNanos) {
+            started.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            long max;
+            do {
+                max = maxWaitNanos.get();
+            } while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos));
+        }
+
+        Stats stats() {
+            long count = started.get();
+            return new Stats(
+                pool.getQueue().size(),
+                pool.getActiveCount(),
+                pool.getCompletedTaskCount(),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get())
+            );
+        }
+    }
+
+    // Queued work, the PriorityBlockingQueue orders these by (priority, sequence)
+    private static final class Task implements Runnable, Comparable<Task> {
+        private final Lane lane;
+        private final Runnable command;
+        private final int priority;
+        private final long sequence;
+        private final long enqueuedAt = System.nanoTime();
+
+        Task(Lane lane, Runnable command, Priority priority) {
+            this.lane = lane;
+            this.command = command;
+            this.priority = priority.ordinal();
+            this.sequence = lane.sequence.getAndIncrement();
+        }
+
+        @Override
+        public void run() {
+            lane.recordWait(System.nanoTime() - enqueuedAt);
+            command.run();
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
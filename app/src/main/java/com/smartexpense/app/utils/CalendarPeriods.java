@@ -0,0 +1,215 @@
+package com.smartexpense.app.utils;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+// Local day numbers and the day, week, month and year containing today.
+// Boundaries are computed once per local day and recomputed only when the date, the default time
+// zone or the locale's first day of the week changes; lookups in between only read a snapshot.
+// A day number is days since 1970-01-01 on the local calendar, the key of the daily rollup.
+public final class CalendarPeriods {
+
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // How often the default time zone and locale are re-read, TimeZone.getDefault() returns a copy
+    private static final long CHECK_MILLIS = 60 * 1000;
+
+    private static volatile Periods current;
+
+    private CalendarPeriods() {
+    }
+
+    // Periods containing now
+    public static Periods current() {
+        long now = System.currentTimeMillis();
+        Periods periods = current;
+        if (periods == null || !periods.isCurrent(now)) {
+            periods = refresh(periods, now);
+        }
+        return periods;
+    }
+
+    // Local day number of a timestamp, allocation free
+    public static long toEpochDay(long timestamp) {
+        return Math.floorDiv(timestamp + current().timeZone.getOffset(timestamp), DAY_MILLIS);
+    }
+
+    // Time zone day numbers are counted in, the same instance until its rules change
+    public static TimeZone timeZone() {
+        return current().timeZone;
+    }
+
+    // Timestamp of local midnight starting a day number
+    public static long startOfDay(long epochDay) {
+        return startOfDay(current().timeZone, epochDay);
+    }
+
+    // Civil date of a day number as year * 10000 + month * 100 + day, month 1 to 12
+    public static long civilDate(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    // Periods containing an instant in a given zone and locale, current() without the clock
+    static Periods at(long now, TimeZone timeZone, Locale locale) {
+        int firstDayOfWeek = Calendar.getInstance(timeZone, locale).getFirstDayOfWeek();
+        long today = Math.floorDiv(now + timeZone.getOffset(now), DAY_MILLIS);
+        return new Periods(timeZone, locale, firstDayOfWeek, today, now);
+    }
+
+    static long startOfDay(TimeZone timeZone, long epochDay) {
+        long local = epochDay * DAY_MILLIS;
+        // Correct once with the offset in effect at the first guess, right across DST changes
+        long guess = local - timeZone.getOffset(local);
+        long start = local - timeZone.getOffset(guess);
+        if (start + timeZone.getOffset(start) < local) {
+            // Midnight was skipped by a DST change, the day starts at the change
+            start = local - timeZone.getOffset(start);
+        }
+        return start;
+    }
+
+    // Day of the week of a day number as a Calendar constant, SUNDAY is 1
+    public static int dayOfWeek(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return (int) Math.floorMod(epochDay + 4, 7) + Calendar.SUNDAY;
+    }
+
+    private static synchronized Periods refresh(Periods previous, long now) {
+        Periods periods = current;
+        if (periods != previous && periods != null && periods.isCurrent(now)) {
+            // Another thread refreshed first
+            return periods;
+        }
+        TimeZone timeZone = TimeZone.getDefault();
+        Locale locale = Locale.getDefault();
+        if (previous != null && previous.timeZone.hasSameRules(timeZone)) {
+            timeZone = previous.timeZone;
+        }
+        int firstDayOfWeek = previous != null && previous.locale.equals(locale) ?
+            previous.firstDayOfWeek : Calendar.getInstance(timeZone, locale).getFirstDayOfWeek();
+        long today = Math.floorDiv(now + timeZone.getOffset(now), DAY_MILLIS);
+
+        if (previous != null && previous.today == today && previous.timeZone == timeZone
+                && previous.locale.equals(locale)) {
+            // Nothing changed, only remember that it was checked
+            periods = previous.checkedAt(now);
+        } else {
+            periods = new Periods(timeZone, locale, firstDayOfWeek, today, now);
+        }
+        current = periods;
+        return periods;
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date, month 1 to 12, the inverse of civilDate
+    static long daysFromCivil(long year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Boundaries of the periods containing one local day, as day numbers
+    public static final class Periods {
+        private final TimeZone timeZone;
+        private final Locale locale;
+        private final int firstDayOfWeek;
+        private final long today;
+        private final long weekStart;
+        private final long monthStart;
+        private final long previousMonthStart;
+        private final long yearStart;
+        // [dayStartMillis, nextDayStartMillis) is the local day this snapshot describes
+        private final long dayStartMillis;
+        private final long nextDayStartMillis;
+        private final long checkedAt;
+
+        private Periods(TimeZone timeZone, Locale locale, int firstDayOfWeek, long today, long now) {
+            this.timeZone = timeZone;
+            this.locale = locale;
+            this.firstDayOfWeek = firstDayOfWeek;
+            this.today = today;
+            this.weekStart = today - Math.floorMod(dayOfWeek(today) - firstDayOfWeek, 7);
+
+            long date = civilDate(today);
+            long year = Math.floorDiv(date, 10000);
+            int month = (int) (Math.floorMod(date, 10000L) / 100);
+
+            this.monthStart = daysFromCivil(year, month, 1);
+            this.previousMonthStart = month == 1 ?
+                daysFromCivil(year - 1, 12, 1) : daysFromCivil(year, month - 1, 1);
+            this.yearStart = daysFromCivil(year, 1, 1);
+
+            this.dayStartMillis = startOfDay(timeZone, today);
+            this.nextDayStartMillis = startOfDay(timeZone, today + 1);
+            this.checkedAt = now;
+        }
+
+        private Periods(Periods periods, long checkedAt) {
+            this.timeZone = periods.timeZone;
+            this.locale = periods.locale;
+            this.firstDayOfWeek = periods.firstDayOfWeek;
+            this.today = periods.today;
+            this.weekStart = periods.weekStart;
+            this.monthStart = periods.monthStart;
+            this.previousMonthStart = periods.previousMonthStart;
+            this.yearStart = periods.yearStart;
+            this.dayStartMillis = periods.dayStartMillis;
+            this.nextDayStartMillis = periods.nextDayStartMillis;
+            this.checkedAt = checkedAt;
+        }
+
+        private Periods checkedAt(long now) {
+            return new Periods(this, now);
+        }
+
+        private boolean isCurrent(long now) {
+            return now >= dayStartMillis && now < nextDayStartMillis && now - checkedAt < CHECK_MILLIS;
+        }
+
+        // Calendar constant of the locale's first day of the week
+        public int getFirstDayOfWeek() {
+            return firstDayOfWeek;
+        }
+
+        public long getToday() {
+            return today;
+        }
+
+        public long getWeekStart() {
+            return weekStart;
+        }
+
+        public long getMonthStart() {
+            return monthStart;
+        }
+
+        public long getPreviousMonthStart() {
+            return previousMonthStart;
+        }
+
+        public long getYearStart() {
+            return yearStart;
+        }
+
+        // Timestamp of the first millisecond of today
+        public long getDayStartMillis() {
+            return dayStartMillis;
+        }
+
+        // Timestamp of the last millisecond of today
+        public long getDayEndMillis() {
+            return nextDayStartMillis - 1;
+        }
+    }
+}
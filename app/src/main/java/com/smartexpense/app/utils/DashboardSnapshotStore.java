@@ -0,0 +1,131 @@
+package com.smartexpense.app.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.smartexpense.app.model.CategoryTotal;
+import com.smartexpense.app.model.DashboardSummary;
+import com.smartexpense.app.model.Money;
+import com.smartexpense.app.model.ReportPeriod;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the last dashboard summary and category breakdowns per user so they can be shown before
+// the database answers
+public class DashboardSnapshotStore {
+
+    private static final String PREF_NAME = "SmartExpenseDashboard";
+    private static final String KEY_SUMMARY_PREFIX = "summary_";
+    private static final String KEY_BREAKDOWN_PREFIX = "breakdown_";
+
+    // Bump when the encoding changes, older snapshots are then ignored
+    private static final int FORMAT_VERSION = 3;
+
+    private SharedPreferences sharedPreferences;
+
+    public DashboardSnapshotStore(Context context) {
+        sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    // Get the last saved summary, null if there is none or it cannot be read
+    public DashboardSummary load(int userId) {
+        String encoded = sharedPreferences.getString(KEY_SUMMARY_PREFIX + userId, null);
+        if (encoded == null) {
+            return null;
+        }
+        try {
+            return decode(encoded);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    // Save a summary, written to disk in the background
+    public void save(int userId, DashboardSummary summary) {
+        sharedPreferences.edit()
+            .putString(KEY_SUMMARY_PREFIX + userId, encode(summary))
+            .apply();
+    }
+
+    // Get the last saved breakdown of a period, null if there is none or it cannot be read
+    public List<CategoryTotal> loadBreakdown(int userId, ReportPeriod period) {
+        String encoded = sharedPreferences.getString(breakdownKey(userId, period), null);
+        if (encoded == null) {
+            return null;
+        }
+        try {
+            return decodeBreakdown(encoded);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    // Save the breakdown of a period, written to disk in the background
+    public void saveBreakdown(int userId, ReportPeriod period, List<CategoryTotal> categoryTotals) {
+        sharedPreferences.edit()
+            .putString(breakdownKey(userId, period), encodeBreakdown(categoryTotals))
+            .apply();
+    }
+
+    // Remove all snapshots
+    public void clear() {
+        sharedPreferences.edit().clear().apply();
+    }
+
+    private static String breakdownKey(int userId, ReportPeriod period) {
+        return KEY_BREAKDOWN_PREFIX + userId + "_" + period.name();
+    }
+
+    // [version, today, week, month] with amounts in minor units
+    private static String encode(DashboardSummary summary) {
+        JSONArray array = new JSONArray();
+        array.put(FORMAT_VERSION);
+        array.put(summary.getTodayTotal().getMinorUnits());
+        array.put(summary.getWeekTotal().getMinorUnits());
+        array.put(summary.getMonthTotal().getMinorUnits());
+        return array.toString();
+    }
+
+    private static DashboardSummary decode(String encoded) throws JSONException {
+        JSONArray array = new JSONArray(encoded);
+        if (array.getInt(0) != FORMAT_VERSION || array.length() != 4) {
+            return null;
+        }
+        return new DashboardSummary(
+            Money.ofMinorUnits(array.getLong(1)),
+            Money.ofMinorUnits(array.getLong(2)),
+            Money.ofMinorUnits(array.getLong(3))
+        );
+    }
+
+    // [version, category id, category, total, count, ...] with amounts in minor units
+    private static String encodeBreakdown(List<CategoryTotal> categoryTotals) {
+        JSONArray array = new JSONArray();
+        array.put(FORMAT_VERSION);
+        for (CategoryTotal categoryTotal : categoryTotals) {
+            array.put(categoryTotal.getCategoryId());
+            array.put(categoryTotal.getCategory());
+            array.put(categoryTotal.getTotal().getMinorUnits());
+            array.put(categoryTotal.getCount());
+        }
+        return array.toString();
+    }
+
+    private static List<CategoryTotal> decodeBreakdown(String encoded) throws JSONException {
+        JSONArray array = new JSONArray(encoded);
+        if (array.getInt(0) != FORMAT_VERSION || (array.length() - 1) % 4 != 0) {
+            return null;
+        }
+
+        List<CategoryTotal> categoryTotals = new ArrayList<>((array.length() - 1) / 4);
+        for (int i = 1; i < array.length(); i += 4) {
+            categoryTotals.add(new CategoryTotal(array.getInt(i), array.getString(i + 1),
+                Money.ofMinorUnits(array.getLong(i + 2)), array.getInt(i + 3)));
+        }
+        return categoryTotals;
+    }
+}
@@ -1,34 +1,152 @@
 package com.smartexpense.app.utils;
 
+import com.smartexpense.app.model.Money;
+
+import java.text.FieldPosition;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
+import java.util.Currency;
 import java.util.Date;
 import java.util.Locale;
+import java.util.TimeZone;
 
 public class FormatUtils {
 
+    // Day strings remembered per thread, a power of two
+    private static final int DATE_MEMO_SIZE = 64;
+    // Amounts are stored in US dollars, a locale changes how they are written, not their currency
+    private static final Currency CURRENCY = Currency.getInstance("USD");
+
+    private static volatile Locale currencyLocale = Locale.US;
+
+    // Formatters are not thread-safe, so each thread keeps its own set
+    private static final ThreadLocal<Formatters> FORMATTERS = new ThreadLocal<Formatters>() {
+        @Override
+        protected Formatters initialValue() {
+            return new Formatters();
+        }
+    };
+
+    // Locale used for currency symbols and grouping, Locale.US unless changed
+    public static void setCurrencyLocale(Locale locale) {
+        currencyLocale = locale;
+    }
+
+    public static Locale getCurrencyLocale() {
+        return currencyLocale;
+    }
+
     // Format currency
-    public static String formatCurrency(double amount) {
-        NumberFormat formatter = NumberFormat.getCurrencyInstance(Locale.US);
-        return formatter.format(amount);
+    public static String formatCurrency(Money amount) {
+        Formatters formatters = FORMATTERS.get();
+        StringBuffer buffer = formatters.currencyBuffer;
+        buffer.setLength(0);
+        formatCurrency(amount, buffer);
+        return buffer.toString();
     }
 
-    // Format date
+    // Format currency into the caller's buffer without allocating a String
+    public static void formatCurrency(Money amount, StringBuffer out) {
+        Formatters formatters = FORMATTERS.get();
+        // Amounts have two decimals, a double holds them exactly enough to print
+        formatters.currencyFormat().format(
+            amount.getMinorUnits() / (double) Money.MINOR_UNITS_PER_MAJOR, out, formatters.fieldPosition);
+    }
+
+    // Format date, remembered per local day
     public static String formatDate(long timestamp) {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        return sdf.format(new Date(timestamp));
+        return FORMATTERS.get().formatDay(timestamp, false);
     }
 
     // Format date with time
     public static String formatDateTime(long timestamp) {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
-        return sdf.format(new Date(timestamp));
+        Formatters formatters = FORMATTERS.get();
+        formatters.checkLocale();
+        formatters.date.setTime(timestamp);
+        return formatters.dateTimeFormat.format(formatters.date);
     }
 
-    // Format short date
+    // Format short date, remembered per local day
     public static String formatShortDate(long timestamp) {
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yy", Locale.getDefault());
-        return sdf.format(new Date(timestamp));
+        return FORMATTERS.get().formatDay(timestamp, true);
     }
-}
 
+    // One thread's formatters and remembered day strings
+    private static final class Formatters {
+        final StringBuffer currencyBuffer = new StringBuffer(24);
+        final FieldPosition fieldPosition = new FieldPosition(0);
+        final Date date = new Date();
+
+        private Locale numberLocale;
+        private NumberFormat currencyFormat;
+
+        private Locale locale;
+        private TimeZone timeZone;
+        private SimpleDateFormat dateFormat;
+        private SimpleDateFormat dateTimeFormat;
+        private SimpleDateFormat shortDateFormat;
+
+        private final long[] memoDays = new long[DATE_MEMO_SIZE];
+        private final String[] memoDates = new String[DATE_MEMO_SIZE];
+        private final String[] memoShortDates = new String[DATE_MEMO_SIZE];
+
+        NumberFormat currencyFormat() {
+            Locale wanted = currencyLocale;
+            if (currencyFormat == null || !wanted.equals(numberLocale)) {
+                numberLocale = wanted;
+                currencyFormat = NumberFormat.getCurrencyInstance(wanted);
+                currencyFormat.setCurrency(CURRENCY);
+                // Some locales' currencies have no minor units, Money always has two
+                currencyFormat.setMinimumFractionDigits(2);
+                currencyFormat.setMaximumFractionDigits(2);
+            }
+            return currencyFormat;
+        }
+
+        // Rebuild date formatters and forget day strings when the locale or time zone changed.
+        // The zone is CalendarPeriods', so the memo's day numbers and the formatted dates agree.
+        void checkLocale() {
+            Locale wanted = Locale.getDefault();
+            TimeZone current = CalendarPeriods.timeZone();
+            if (current == timeZone && wanted.equals(locale)) {
+                return;
+            }
+            timeZone = current;
+            locale = wanted;
+            dateFormat = newDateFormat("MMM dd, yyyy");
+            dateTimeFormat = newDateFormat("MMM dd, yyyy HH:mm");
+            shortDateFormat = newDateFormat("dd/MM/yy");
+            for (int i = 0; i < DATE_MEMO_SIZE; i++) {
+                memoDates[i] = null;
+                memoShortDates[i] = null;
+            }
+        }
+
+        private SimpleDateFormat newDateFormat(String pattern) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, locale);
+            format.setTimeZone(timeZone);
+            return format;
+        }
+
+        // Look up the local day of timestamp in a small direct-mapped memo, formatting on a miss
+        String formatDay(long timestamp, boolean shortDate) {
+            checkLocale();
+            long day = CalendarPeriods.toEpochDay(timestamp);
+            int slot = (int) (day & (DATE_MEMO_SIZE - 1));
+            String[] memo = shortDate ? memoShortDates : memoDates;
+
+            if (memoDays[slot] != day) {
+                memoDays[slot] = day;
+                memoDates[slot] = null;
+                memoShortDates[slot] = null;
+            }
+            String formatted = memo[slot];
+            if (formatted == null) {
+                date.setTime(timestamp);
+                formatted = (shortDate ? shortDateFormat : dateFormat).format(date);
+                memo[slot] = formatted;
+            }
+            return formatted;
+        }
+    }
+}
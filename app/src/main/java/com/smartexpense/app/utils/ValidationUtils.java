@@ -3,6 +3,8 @@ package com.smartexpense.app.utils;
 import android.text.TextUtils;
 import android.util.Patterns;
 
+import com.smartexpense.app.model.Money;
+
 public class ValidationUtils {
 
     // Validate email
@@ -26,9 +28,8 @@ public class ValidationUtils {
             return false;
         }
         try {
-            double value = Double.parseDouble(amount);
-            return value > 0;
-        } catch (NumberFormatException e) {
+            return Money.parse(amount).compareTo(Money.ZERO) > 0;
+        } catch (NumberFormatException | ArithmeticException e) {
             return false;
         }
     }
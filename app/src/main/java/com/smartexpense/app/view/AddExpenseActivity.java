@@ -13,12 +13,15 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 import com.smartexpense.app.R;
+import com.smartexpense.app.model.Category;
 import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.Money;
 import com.smartexpense.app.utils.FormatUtils;
 import com.smartexpense.app.utils.SessionManager;
 import com.smartexpense.app.utils.ValidationUtils;
 import com.smartexpense.app.viewmodel.ExpenseViewModel;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 
 public class AddExpenseActivity extends AppCompatActivity {
@@ -80,21 +83,21 @@ public class AddExpenseActivity extends AppCompatActivity {
         expenseViewModel = new ViewModelProvider(this).get(ExpenseViewModel.class);
     }
 
+    // Built-in and the user's own categories, a name typed that is not listed becomes a new category
     private void setupCategories() {
-        String[] categories = {
-            getString(R.string.food),
-            getString(R.string.transport),
-            getString(R.string.shopping),
-            getString(R.string.bills),
-            getString(R.string.other)
-        };
-
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+        ArrayAdapter<Category> adapter = new ArrayAdapter<>(
             this,
             android.R.layout.simple_dropdown_item_1line,
-            categories
+            new ArrayList<>()
         );
         categoryDropdown.setAdapter(adapter);
+
+        expenseViewModel.getCategories(sessionManager.getUserId()).observe(this, categories -> {
+            adapter.clear();
+            if (categories != null) {
+                adapter.addAll(categories);
+            }
+        });
     }
 
     private void setupListeners() {
@@ -171,7 +174,7 @@ public class AddExpenseActivity extends AppCompatActivity {
         }
 
         if (isValid) {
-            double amount = Double.parseDouble(amountStr);
+            Money amount = Money.parse(amountStr);
             int userId = sessionManager.getUserId();
 
             if (expenseId == -1) {
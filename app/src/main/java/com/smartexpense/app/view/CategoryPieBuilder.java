@@ -0,0 +1,55 @@
+package com.smartexpense.app.view;
+
+import android.graphics.Color;
+
+import com.github.mikephil.charting.data.PieData;
+import com.github.mikephil.charting.data.PieDataSet;
+import com.github.mikephil.charting.data.PieEntry;
+import com.smartexpense.app.database.CategoryRegistry;
+import com.smartexpense.app.model.CategoryTotal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Pie slices per category, colored with the color stored for each category
+final class CategoryPieBuilder implements ChartPipeline.Builder<List<CategoryTotal>, PieData> {
+
+    private final CategoryRegistry categoryRegistry;
+    private final float valueTextSize;
+
+    CategoryPieBuilder(CategoryRegistry categoryRegistry, float valueTextSize) {
+        this.categoryRegistry = categoryRegistry;
+        this.valueTextSize = valueTextSize;
+    }
+
+    @Override
+    public ChartPipeline.Model buildModel(List<CategoryTotal> categoryTotals) {
+        int size = categoryTotals.size();
+        float[] values = new float[size];
+        String[] labels = new String[size];
+        int[] colors = new int[size];
+        for (int i = 0; i < size; i++) {
+            CategoryTotal categoryTotal = categoryTotals.get(i);
+            values[i] = categoryTotal.getTotal().toFloat();
+            labels[i] = categoryTotal.getCategory();
+            colors[i] = categoryRegistry.getColor(categoryTotal.getCategoryId());
+        }
+        return new ChartPipeline.Model(values, labels, colors);
+    }
+
+    @Override
+    public PieData buildData(ChartPipeline.Model model) {
+        List<PieEntry> entries = new ArrayList<>(model.values.length);
+        List<Integer> colors = new ArrayList<>(model.colors.length);
+        for (int i = 0; i < model.values.length; i++) {
+            entries.add(new PieEntry(model.values[i], model.labels[i]));
+            colors.add(model.colors[i]);
+        }
+
+        PieDataSet dataSet = new PieDataSet(entries, "");
+        dataSet.setColors(colors);
+        dataSet.setValueTextSize(valueTextSize);
+        dataSet.setValueTextColor(Color.WHITE);
+        return new PieData(dataSet);
+    }
+}
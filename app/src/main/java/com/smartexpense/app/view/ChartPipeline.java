@@ -0,0 +1,133 @@
+package com.smartexpense.app.view;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.github.mikephil.charting.charts.Chart;
+import com.github.mikephil.charting.data.ChartData;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.interfaces.datasets.IDataSet;
+import com.smartexpense.app.utils.AppExecutors;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+// Builds chart data off the main thread and hands it to the chart only when the values drawn change.
+// The first data set is animated in, later ones replace it without animating. Call from the main thread.
+final class ChartPipeline<S, D extends ChartData<? extends IDataSet<? extends Entry>>> {
+
+    private static final int ANIMATION_MILLIS = 1000;
+
+    // What a chart shows: one value, label and color per entry
+    static final class Model {
+        final float[] values;
+        final String[] labels;
+        final int[] colors;
+
+        Model(float[] values, String[] labels, int[] colors) {
+            this.values = values;
+            this.labels = labels;
+            this.colors = colors;
+        }
+
+        boolean isEmpty() {
+            return values.length == 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Model)) {
+                return false;
+            }
+            Model other = (Model) o;
+            return Arrays.equals(values, other.values)
+                && Arrays.equals(labels, other.labels)
+                && Arrays.equals(colors, other.colors);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Arrays.hashCode(values);
+            result = 31 * result + Arrays.hashCode(labels);
+            result = 31 * result + Arrays.hashCode(colors);
+            return result;
+        }
+    }
+
+    interface Builder<S, D> {
+        // Background thread: the model for a source value
+        Model buildModel(S source);
+
+        // Background thread: chart data for a model that differs from the one shown
+        D buildData(Model model);
+    }
+
+    interface OnRenderedListener {
+        // Main thread, after the chart took a new model
+        void onRendered(Model model);
+    }
+
+    private final Chart<D> chart;
+    private final Builder<S, D> builder;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Builds may overlap on the pool, only the newest submission is rendered
+    private final Executor buildExecutor = AppExecutors.getInstance().reader(AppExecutors.Priority.NORMAL);
+    private OnRenderedListener onRenderedListener;
+
+    // Newest submission, older builds are dropped when they finish
+    private int generation;
+    // Model on screen, read by builds to skip unchanged data
+    private volatile Model rendered;
+
+    ChartPipeline(Chart<D> chart, Builder<S, D> builder) {
+        this.chart = chart;
+        this.builder = builder;
+    }
+
+    void setOnRenderedListener(OnRenderedListener onRenderedListener) {
+        this.onRenderedListener = onRenderedListener;
+    }
+
+    void submit(S source) {
+        int submitted = ++generation;
+        buildExecutor.execute(() -> {
+            Model model = builder.buildModel(source);
+            if (model.equals(rendered)) {
+                return;
+            }
+            D data = model.isEmpty() ? null : builder.buildData(model);
+            mainHandler.post(() -> {
+                if (submitted == generation && !model.equals(rendered)) {
+                    render(model, data);
+                }
+            });
+        });
+    }
+
+    // Drop builds still on their way, call when the chart's screen is destroyed
+    void dispose() {
+        generation++;
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void render(Model model, D data) {
+        boolean first = rendered == null || rendered.isEmpty();
+        rendered = model;
+        if (data == null) {
+            chart.clear();
+        } else {
+            chart.setData(data);
+            if (first) {
+                chart.animateY(ANIMATION_MILLIS);
+            } else {
+                chart.invalidate();
+            }
+        }
+        if (onRenderedListener != null) {
+            onRenderedListener.onRendered(model);
+        }
+    }
+}
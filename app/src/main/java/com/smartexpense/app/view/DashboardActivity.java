@@ -12,16 +12,16 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.github.mikephil.charting.charts.PieChart;
 import com.github.mikephil.charting.data.PieData;
-import com.github.mikephil.charting.data.PieDataSet;
-import com.github.mikephil.charting.data.PieEntry;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.chip.ChipGroup;
 import com.smartexpense.app.R;
 import com.smartexpense.app.model.CategoryTotal;
+import com.smartexpense.app.model.DashboardSummary;
+import com.smartexpense.app.utils.DashboardSnapshotStore;
 import com.smartexpense.app.utils.FormatUtils;
 import com.smartexpense.app.utils.SessionManager;
 import com.smartexpense.app.viewmodel.ExpenseViewModel;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class DashboardActivity extends AppCompatActivity {
@@ -31,10 +31,13 @@ public class DashboardActivity extends AppCompatActivity {
     private TextView weekTotalText;
     private TextView monthTotalText;
     private PieChart pieChart;
+    private ChipGroup periodChipGroup;
     private MaterialButton addExpenseButton;
     private MaterialButton viewAllButton;
     private MaterialButton statisticsButton;
 
+    private ChartPipeline<List<CategoryTotal>, PieData> pieChartPipeline;
+
     private ExpenseViewModel expenseViewModel;
     private SessionManager sessionManager;
 
@@ -45,14 +48,9 @@ public class DashboardActivity extends AppCompatActivity {
 
         initViews();
         initViewModel();
+        setupPieChart();
         setupListeners();
-        loadData();
-    }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-        loadData();
+        observeViewModel();
     }
 
     private void initViews() {
@@ -61,6 +59,7 @@ public class DashboardActivity extends AppCompatActivity {
         weekTotalText = findViewById(R.id.weekTotalText);
         monthTotalText = findViewById(R.id.monthTotalText);
         pieChart = findViewById(R.id.pieChart);
+        periodChipGroup = findViewById(R.id.periodChipGroup);
         addExpenseButton = findViewById(R.id.addExpenseButton);
         viewAllButton = findViewById(R.id.viewAllButton);
         statisticsButton = findViewById(R.id.statisticsButton);
@@ -91,81 +90,47 @@ public class DashboardActivity extends AppCompatActivity {
         });
     }
 
-    private void loadData() {
-        int userId = sessionManager.getUserId();
-
-        // Load totals
-        expenseViewModel.loadTotals(userId);
-        expenseViewModel.loadCategoryTotals(userId);
-
-        observeViewModel();
-    }
-
     private void observeViewModel() {
-        expenseViewModel.getTodayTotal().observe(this, total -> {
-            if (total != null) {
-                todayTotalText.setText(FormatUtils.formatCurrency(total));
-            }
-        });
-
-        expenseViewModel.getWeekTotal().observe(this, total -> {
-            if (total != null) {
-                weekTotalText.setText(FormatUtils.formatCurrency(total));
-            }
-        });
+        int userId = sessionManager.getUserId();
 
-        expenseViewModel.getMonthTotal().observe(this, total -> {
-            if (total != null) {
-                monthTotalText.setText(FormatUtils.formatCurrency(total));
+        // Re-queried by the view model only when this user's expenses change
+        expenseViewModel.getDashboardSummary(userId).observe(this, summary -> {
+            if (summary != null) {
+                showSummary(summary);
             }
         });
 
-        expenseViewModel.getCategoryTotals().observe(this, categoryTotals -> {
-            if (categoryTotals != null && !categoryTotals.isEmpty()) {
-                setupPieChart(categoryTotals);
-            } else {
-                setupEmptyPieChart();
+        // Pie of the period picked with the chips, rebuilt off the main thread when the slices change
+        PeriodChips.bind(periodChipGroup, this, expenseViewModel);
+        expenseViewModel.getCategoryBreakdown(userId).observe(this, categoryTotals -> {
+            if (categoryTotals != null) {
+                pieChartPipeline.submit(categoryTotals);
             }
         });
     }
 
-    private void setupPieChart(List<CategoryTotal> categoryTotals) {
-        List<PieEntry> entries = new ArrayList<>();
-
-        for (CategoryTotal categoryTotal : categoryTotals) {
-            entries.add(new PieEntry((float) categoryTotal.getTotal(), categoryTotal.getCategory()));
-        }
-
-        PieDataSet dataSet = new PieDataSet(entries, "");
-
-        // Set colors
-        int[] colors = {
-            Color.parseColor("#FF6384"),
-            Color.parseColor("#36A2EB"),
-            Color.parseColor("#FFCE56"),
-            Color.parseColor("#4BC0C0"),
-            Color.parseColor("#9966FF")
-        };
-        dataSet.setColors(colors);
-
-        dataSet.setValueTextSize(12f);
-        dataSet.setValueTextColor(Color.WHITE);
-
-        PieData data = new PieData(dataSet);
+    private void showSummary(DashboardSummary summary) {
+        todayTotalText.setText(FormatUtils.formatCurrency(summary.getTodayTotal()));
+        weekTotalText.setText(FormatUtils.formatCurrency(summary.getWeekTotal()));
+        monthTotalText.setText(FormatUtils.formatCurrency(summary.getMonthTotal()));
+    }
 
-        pieChart.setData(data);
+    // Chart settings that never change, the data comes through pieChartPipeline
+    private void setupPieChart() {
         pieChart.getDescription().setEnabled(false);
         pieChart.setDrawHoleEnabled(true);
         pieChart.setHoleColor(Color.WHITE);
         pieChart.setTransparentCircleRadius(58f);
-        pieChart.animateY(1000);
-        pieChart.invalidate();
+        pieChart.setNoDataText("No expenses in this period");
+
+        pieChartPipeline = new ChartPipeline<>(pieChart,
+            new CategoryPieBuilder(expenseViewModel.getCategoryRegistry(), 12f));
     }
 
-    private void setupEmptyPieChart() {
-        pieChart.clear();
-        pieChart.setNoDataText("No expenses yet");
-        pieChart.invalidate();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        pieChartPipeline.dispose();
     }
 
     private void showLogoutDialog() {
@@ -179,6 +144,7 @@ public class DashboardActivity extends AppCompatActivity {
 
     private void logout() {
         sessionManager.logout();
+        new DashboardSnapshotStore(this).clear();
 
         Intent intent = new Intent(this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -1,15 +1,21 @@
 package com.smartexpense.app.view;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.LinearLayout;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.ActionBar;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
@@ -20,10 +26,14 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.smartexpense.app.R;
 import com.smartexpense.app.adapter.ExpenseAdapter;
+import com.smartexpense.app.model.Category;
 import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.repository.ExpenseExporter;
 import com.smartexpense.app.utils.SessionManager;
 import com.smartexpense.app.viewmodel.ExpenseViewModel;
 
+import java.util.ArrayList;
+
 public class ExpenseListActivity extends AppCompatActivity implements ExpenseAdapter.OnExpenseClickListener {
 
     private RecyclerView expensesRecyclerView;
@@ -36,6 +46,21 @@ public class ExpenseListActivity extends AppCompatActivity implements ExpenseAda
     private ExpenseViewModel expenseViewModel;
     private SessionManager sessionManager;
 
+    private ActivityResultLauncher<String[]> importLauncher =
+        registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+            if (uri != null) {
+                startImport(uri);
+            }
+        });
+
+    private int pendingExportFormat = ExpenseExporter.FORMAT_CSV;
+    private ActivityResultLauncher<String> exportLauncher =
+        registerForActivityResult(new ActivityResultContracts.CreateDocument("*/*"), uri -> {
+            if (uri != null) {
+                startExport(uri);
+            }
+        });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -46,13 +71,43 @@ public class ExpenseListActivity extends AppCompatActivity implements ExpenseAda
         setupRecyclerView();
         setupFilters();
         setupListeners();
+        observeViewModel();
         loadExpenses();
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        loadExpenses();
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_expense_list, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        boolean importing = expenseViewModel.isImporting();
+        menu.findItem(R.id.action_import_csv).setVisible(!importing);
+        menu.findItem(R.id.action_cancel_import).setVisible(importing);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int itemId = item.getItemId();
+        if (itemId == R.id.action_import_csv) {
+            importLauncher.launch(new String[]{"text/*", "application/csv"});
+            return true;
+        } else if (itemId == R.id.action_cancel_import) {
+            expenseViewModel.cancelImport();
+            return true;
+        } else if (itemId == R.id.action_export_csv) {
+            pendingExportFormat = ExpenseExporter.FORMAT_CSV;
+            exportLauncher.launch("expenses.csv");
+            return true;
+        } else if (itemId == R.id.action_export_json) {
+            pendingExportFormat = ExpenseExporter.FORMAT_JSON;
+            exportLauncher.launch("expenses.json");
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
     }
 
     private void initViews() {
@@ -70,28 +125,33 @@ public class ExpenseListActivity extends AppCompatActivity implements ExpenseAda
     }
 
     private void setupRecyclerView() {
-        expenseAdapter = new ExpenseAdapter(this);
+        expenseAdapter = new ExpenseAdapter(this, expenseViewModel.getCategoryRegistry());
+        expenseAdapter.setPageLoader(ExpenseViewModel.PAGE_SIZE, (generation, pageIndex, afterDate, afterId) ->
+            expenseViewModel.loadExpensePage(sessionManager.getUserId(), generation, pageIndex, afterDate, afterId));
         expensesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         expensesRecyclerView.setAdapter(expenseAdapter);
     }
 
     private void setupFilters() {
-        String[] categories = {
-            getString(R.string.all_categories),
-            getString(R.string.food),
-            getString(R.string.transport),
-            getString(R.string.shopping),
-            getString(R.string.bills),
-            getString(R.string.other)
-        };
-
         ArrayAdapter<String> adapter = new ArrayAdapter<>(
             this,
             android.R.layout.simple_dropdown_item_1line,
-            categories
+            new ArrayList<>()
         );
+        adapter.add(getString(R.string.all_categories));
         filterCategoryDropdown.setAdapter(adapter);
-        filterCategoryDropdown.setText(categories[0], false);
+        filterCategoryDropdown.setText(getString(R.string.all_categories), false);
+
+        // Built-in and the user's own categories, kept current as new ones are added
+        expenseViewModel.getCategories(sessionManager.getUserId()).observe(this, categories -> {
+            adapter.clear();
+            adapter.add(getString(R.string.all_categories));
+            if (categories != null) {
+                for (Category category : categories) {
+                    adapter.add(category.getName());
+                }
+            }
+        });
     }
 
     private void setupListeners() {
@@ -118,32 +178,116 @@ public class ExpenseListActivity extends AppCompatActivity implements ExpenseAda
         });
     }
 
+    // Restart the paged list from the newest expense
     private void loadExpenses() {
-        int userId = sessionManager.getUserId();
-        expenseViewModel.loadExpenses(userId);
-        observeViewModel();
+        expenseViewModel.cancelSearch();
+        expenseAdapter.resetPages();
     }
 
     private void observeViewModel() {
+        expenseViewModel.getExpensePage().observe(this, page -> {
+            if (page != null) {
+                expenseAdapter.submitPage(page);
+                if (page.getPageIndex() == 0) {
+                    updateEmptyState(page.getExpenses().isEmpty());
+                }
+            }
+        });
+
         expenseViewModel.getExpensesList().observe(this, expenses -> {
             if (expenses != null) {
                 expenseAdapter.setExpenses(expenses);
+                updateEmptyState(expenses.isEmpty());
+            }
+        });
 
-                if (expenses.isEmpty()) {
-                    expensesRecyclerView.setVisibility(View.GONE);
-                    emptyStateLayout.setVisibility(View.VISIBLE);
-                } else {
-                    expensesRecyclerView.setVisibility(View.VISIBLE);
-                    emptyStateLayout.setVisibility(View.GONE);
-                }
+        // Reload only after a write to this user's expenses, not on every resume
+        expenseViewModel.getExpenseChanges(sessionManager.getUserId()).observe(this, changes -> {
+            if (changes != null) {
+                refreshList();
             }
         });
 
-        expenseViewModel.getOperationSuccess().observe(this, success -> {
-            if (success != null && success) {
-                loadExpenses();
+        expenseViewModel.getImportProgress().observe(this, rowsRead -> {
+            if (rowsRead != null && expenseViewModel.isImporting()) {
+                setStatus(getString(R.string.import_progress, rowsRead));
             }
         });
+
+        expenseViewModel.getImportResult().observe(this, result -> {
+            if (result != null) {
+                setStatus(null);
+                invalidateOptionsMenu();
+
+                String message = result.isCancelled() ?
+                    getString(R.string.import_cancelled, result.getImported()) :
+                    getString(R.string.import_result, result.getImported(), result.getRejected());
+                Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+            }
+        });
+
+        expenseViewModel.getExportProgress().observe(this, percent -> {
+            if (percent != null && percent < 100) {
+                setStatus(getString(R.string.export_progress, percent));
+            }
+        });
+
+        expenseViewModel.getExportResult().observe(this, written -> {
+            if (written != null) {
+                setStatus(null);
+                Toast.makeText(this, getString(R.string.export_result, written), Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        expenseViewModel.getOperationError().observe(this, error -> {
+            if (error != null) {
+                Toast.makeText(this, error, Toast.LENGTH_SHORT).show();
+                setStatus(null);
+                invalidateOptionsMenu();
+            }
+        });
+    }
+
+    private void startImport(Uri uri) {
+        expenseViewModel.importExpenses(uri, sessionManager.getUserId());
+        invalidateOptionsMenu();
+    }
+
+    // Export the list as currently filtered by category
+    private void startExport(Uri uri) {
+        String category = filterCategoryDropdown.getText().toString();
+        if (category.isEmpty() || category.equals(getString(R.string.all_categories))) {
+            category = null;
+        }
+        expenseViewModel.exportExpenses(uri, sessionManager.getUserId(), category, pendingExportFormat, false);
+    }
+
+    // Show import or export progress under the title
+    private void setStatus(String subtitle) {
+        ActionBar actionBar = getSupportActionBar();
+        if (actionBar != null) {
+            actionBar.setSubtitle(subtitle);
+        }
+    }
+
+    private void updateEmptyState(boolean empty) {
+        if (empty) {
+            expensesRecyclerView.setVisibility(View.GONE);
+            emptyStateLayout.setVisibility(View.VISIBLE);
+        } else {
+            expensesRecyclerView.setVisibility(View.VISIBLE);
+            emptyStateLayout.setVisibility(View.GONE);
+        }
+    }
+
+    // Re-run whatever the list currently shows: search results, a category or all pages
+    private void refreshList() {
+        String query = searchEditText.getText() != null ? searchEditText.getText().toString() : "";
+        if (!query.isEmpty()) {
+            searchExpenses(query);
+        } else {
+            filterByCategory(filterCategoryDropdown.getText().toString());
+        }
     }
 
     private void searchExpenses(String query) {
@@ -159,7 +303,7 @@ public class ExpenseListActivity extends AppCompatActivity implements ExpenseAda
         int userId = sessionManager.getUserId();
 
         if (category.equals(getString(R.string.all_categories))) {
-            expenseViewModel.loadExpenses(userId);
+            loadExpenses();
         } else {
             expenseViewModel.filterByCategory(userId, category);
         }
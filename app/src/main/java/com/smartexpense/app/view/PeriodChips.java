@@ -0,0 +1,62 @@
+package com.smartexpense.app.view;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.android.material.chip.ChipGroup;
+import com.smartexpense.app.R;
+import com.smartexpense.app.model.ReportPeriod;
+import com.smartexpense.app.viewmodel.ExpenseViewModel;
+
+// Binds the period chips of view_period_chips to the view model's breakdown period
+final class PeriodChips {
+
+    private PeriodChips() {
+    }
+
+    static void bind(ChipGroup chipGroup, LifecycleOwner owner, ExpenseViewModel viewModel) {
+        viewModel.getBreakdownPeriod().observe(owner, period -> {
+            int chipId = chipId(period);
+            if (chipGroup.getCheckedChipId() != chipId) {
+                chipGroup.check(chipId);
+            }
+        });
+        chipGroup.setOnCheckedChangeListener((group, checkedId) -> {
+            ReportPeriod period = period(checkedId);
+            if (period != null) {
+                viewModel.setBreakdownPeriod(period);
+            }
+        });
+    }
+
+    private static int chipId(ReportPeriod period) {
+        switch (period) {
+            case LAST_MONTH:
+                return R.id.chipLastMonth;
+            case LAST_30_DAYS:
+                return R.id.chipLast30Days;
+            case THIS_YEAR:
+                return R.id.chipThisYear;
+            case ALL_TIME:
+                return R.id.chipAllTime;
+            case THIS_MONTH:
+            default:
+                return R.id.chipThisMonth;
+        }
+    }
+
+    // Resource ids are not constants in every build, so no switch here
+    private static ReportPeriod period(int chipId) {
+        if (chipId == R.id.chipThisMonth) {
+            return ReportPeriod.THIS_MONTH;
+        } else if (chipId == R.id.chipLastMonth) {
+            return ReportPeriod.LAST_MONTH;
+        } else if (chipId == R.id.chipLast30Days) {
+            return ReportPeriod.LAST_30_DAYS;
+        } else if (chipId == R.id.chipThisYear) {
+            return ReportPeriod.THIS_YEAR;
+        } else if (chipId == R.id.chipAllTime) {
+            return ReportPeriod.ALL_TIME;
+        }
+        return null;
+    }
+}
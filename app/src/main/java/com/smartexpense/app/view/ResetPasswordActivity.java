@@ -14,11 +14,10 @@ import com.google.android.material.textfield.TextInputLayout;
 import com.smartexpense.app.R;
 import com.smartexpense.app.model.User;
 import com.smartexpense.app.repository.AuthRepository;
+import com.smartexpense.app.utils.AppExecutors;
+import com.smartexpense.app.utils.AppExecutors.Priority;
 import com.smartexpense.app.utils.ValidationUtils;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 public class ResetPasswordActivity extends AppCompatActivity {
 
     private TextInputLayout emailInputLayout;
@@ -35,7 +34,7 @@ public class ResetPasswordActivity extends AppCompatActivity {
     private MaterialButton resetButton;
 
     private AuthRepository authRepository;
-    private ExecutorService executorService;
+    private AppExecutors appExecutors;
 
     private String userEmail;
 
@@ -48,7 +47,7 @@ public class ResetPasswordActivity extends AppCompatActivity {
         setupListeners();
 
         authRepository = new AuthRepository(this);
-        executorService = Executors.newSingleThreadExecutor();
+        appExecutors = AppExecutors.getInstance();
     }
 
     private void initViews() {
@@ -83,7 +82,7 @@ public class ResetPasswordActivity extends AppCompatActivity {
             return;
         }
 
-        executorService.execute(() -> {
+        appExecutors.reader(Priority.INTERACTIVE).execute(() -> {
             User user = authRepository.getUserByEmail(email);
 
             runOnUiThread(() -> {
@@ -111,7 +110,7 @@ public class ResetPasswordActivity extends AppCompatActivity {
             return;
         }
 
-        executorService.execute(() -> {
+        appExecutors.reader(Priority.INTERACTIVE).execute(() -> {
             boolean isValid = authRepository.validateSecurityAnswer(userEmail, answer);
 
             runOnUiThread(() -> {
@@ -136,7 +135,7 @@ public class ResetPasswordActivity extends AppCompatActivity {
             return;
         }
 
-        executorService.execute(() -> {
+        appExecutors.writer(Priority.INTERACTIVE).execute(() -> {
             boolean success = authRepository.resetPassword(userEmail, newPassword);
 
             runOnUiThread(() -> {
@@ -152,13 +151,5 @@ public class ResetPasswordActivity extends AppCompatActivity {
             });
         });
     }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (executorService != null) {
-            executorService.shutdown();
-        }
-    }
 }
 
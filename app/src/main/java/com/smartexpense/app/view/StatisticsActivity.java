@@ -13,29 +13,39 @@ import com.github.mikephil.charting.data.BarData;
 import com.github.mikephil.charting.data.BarDataSet;
 import com.github.mikephil.charting.data.BarEntry;
 import com.github.mikephil.charting.data.PieData;
-import com.github.mikephil.charting.data.PieDataSet;
-import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
+import com.google.android.material.chip.ChipGroup;
 import com.smartexpense.app.R;
+import com.smartexpense.app.model.BucketTotal;
 import com.smartexpense.app.model.CategoryTotal;
-import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.TimeBucket;
+import com.smartexpense.app.utils.CalendarPeriods;
 import com.smartexpense.app.utils.SessionManager;
 import com.smartexpense.app.viewmodel.ExpenseViewModel;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public class StatisticsActivity extends AppCompatActivity {
 
+    // Days shown in the spending bar chart, ending today
+    private static final int CHART_DAYS = 7;
+    private static final int BAR_COLOR = 0xFF4CAF50;
+
     private PieChart categoryPieChart;
     private BarChart spendingBarChart;
+    private ChipGroup periodChipGroup;
+    private ChartPipeline<List<CategoryTotal>, PieData> categoryPipeline;
+    private ChartPipeline<List<BucketTotal>, BarData> spendingPipeline;
 
     private ExpenseViewModel expenseViewModel;
     private SessionManager sessionManager;
 
+    // First day of the bar chart as a timestamp and as a local day number
+    private long chartStartDate;
+    private long chartFirstDay;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -43,12 +53,21 @@ public class StatisticsActivity extends AppCompatActivity {
 
         initViews();
         initViewModel();
-        loadData();
+        setupCharts();
+        observeViewModel();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        categoryPipeline.dispose();
+        spendingPipeline.dispose();
     }
 
     private void initViews() {
         categoryPieChart = findViewById(R.id.categoryPieChart);
         spendingBarChart = findViewById(R.id.spendingBarChart);
+        periodChipGroup = findViewById(R.id.periodChipGroup);
 
         sessionManager = new SessionManager(this);
     }
@@ -57,119 +76,96 @@ public class StatisticsActivity extends AppCompatActivity {
         expenseViewModel = new ViewModelProvider(this).get(ExpenseViewModel.class);
     }
 
-    private void loadData() {
-        int userId = sessionManager.getUserId();
+    // Chart settings that never change, data is built off the main thread by the pipelines
+    private void setupCharts() {
+        categoryPieChart.getDescription().setEnabled(false);
+        categoryPieChart.setDrawHoleEnabled(true);
+        categoryPieChart.setHoleColor(Color.WHITE);
+        categoryPieChart.setTransparentCircleRadius(58f);
+        categoryPieChart.setEntryLabelColor(Color.BLACK);
+        categoryPieChart.setEntryLabelTextSize(12f);
+        categoryPipeline = new ChartPipeline<>(categoryPieChart,
+            new CategoryPieBuilder(expenseViewModel.getCategoryRegistry(), 14f));
 
-        expenseViewModel.loadCategoryTotals(userId);
-        expenseViewModel.loadExpenses(userId);
+        spendingBarChart.getDescription().setEnabled(false);
+        XAxis xAxis = spendingBarChart.getXAxis();
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        xAxis.setGranularity(1f);
+        xAxis.setGranularityEnabled(true);
 
-        observeViewModel();
+        // Last seven local days including today
+        chartFirstDay = CalendarPeriods.current().getToday() - (CHART_DAYS - 1);
+        chartStartDate = CalendarPeriods.startOfDay(chartFirstDay);
+
+        spendingPipeline = new ChartPipeline<>(spendingBarChart, new SpendingBarBuilder(chartFirstDay));
+        spendingPipeline.setOnRenderedListener(model ->
+            xAxis.setValueFormatter(new IndexAxisValueFormatter(model.labels)));
     }
 
+    // One observer per chart for the lifetime of the screen
     private void observeViewModel() {
-        expenseViewModel.getCategoryTotals().observe(this, categoryTotals -> {
-            if (categoryTotals != null && !categoryTotals.isEmpty()) {
-                setupCategoryPieChart(categoryTotals);
-            }
-        });
+        int userId = sessionManager.getUserId();
 
-        expenseViewModel.getExpensesList().observe(this, expenses -> {
-            if (expenses != null && !expenses.isEmpty()) {
-                setupSpendingBarChart(expenses);
+        // Category pie of the period picked with the chips
+        PeriodChips.bind(periodChipGroup, this, expenseViewModel);
+        expenseViewModel.getCategoryBreakdown(userId).observe(this, categoryTotals -> {
+            if (categoryTotals != null) {
+                categoryPipeline.submit(categoryTotals);
             }
         });
-    }
-
-    private void setupCategoryPieChart(List<CategoryTotal> categoryTotals) {
-        List<PieEntry> entries = new ArrayList<>();
 
-        for (CategoryTotal categoryTotal : categoryTotals) {
-            entries.add(new PieEntry((float) categoryTotal.getTotal(), categoryTotal.getCategory()));
-        }
+        // Daily totals of the last week, summed by the database from the daily rollup
+        long endDate = CalendarPeriods.startOfDay(chartFirstDay + CHART_DAYS) - 1;
 
-        PieDataSet dataSet = new PieDataSet(entries, "");
+        expenseViewModel.getTotalsByBucket(userId, TimeBucket.DAY, chartStartDate, endDate, 0)
+            .observe(this, buckets -> {
+                if (buckets != null) {
+                    spendingPipeline.submit(buckets);
+                }
+            });
+    }
 
-        int[] colors = {
-            Color.parseColor("#FF6384"),
-            Color.parseColor("#36A2EB"),
-            Color.parseColor("#FFCE56"),
-            Color.parseColor("#4BC0C0"),
-            Color.parseColor("#9966FF")
-        };
-        dataSet.setColors(colors);
-        dataSet.setValueTextSize(14f);
-        dataSet.setValueTextColor(Color.WHITE);
+    // One bar per day of the chart, days without expenses have no bucket and stay at zero
+    private static final class SpendingBarBuilder implements ChartPipeline.Builder<List<BucketTotal>, BarData> {
+        private static final String[] DAY_LABELS = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
 
-        PieData data = new PieData(dataSet);
+        private final long firstDay;
 
-        categoryPieChart.setData(data);
-        categoryPieChart.getDescription().setEnabled(false);
-        categoryPieChart.setDrawHoleEnabled(true);
-        categoryPieChart.setHoleColor(Color.WHITE);
-        categoryPieChart.setTransparentCircleRadius(58f);
-        categoryPieChart.setEntryLabelColor(Color.BLACK);
-        categoryPieChart.setEntryLabelTextSize(12f);
-        categoryPieChart.animateY(1000);
-        categoryPieChart.invalidate();
-    }
-
-    private void setupSpendingBarChart(List<Expense> expenses) {
-        // Group expenses by day for the last 7 days
-        Map<String, Float> dailyTotals = new HashMap<>();
-        Calendar calendar = Calendar.getInstance();
-
-        // Initialize last 7 days
-        List<String> days = new ArrayList<>();
-        for (int i = 6; i >= 0; i--) {
-            calendar.setTimeInMillis(System.currentTimeMillis());
-            calendar.add(Calendar.DAY_OF_YEAR, -i);
-            String day = getDayLabel(calendar);
-            days.add(day);
-            dailyTotals.put(day, 0f);
+        SpendingBarBuilder(long firstDay) {
+            this.firstDay = firstDay;
         }
 
-        // Sum up expenses by day
-        for (Expense expense : expenses) {
-            calendar.setTimeInMillis(expense.getDate());
-            String day = getDayLabel(calendar);
+        @Override
+        public ChartPipeline.Model buildModel(List<BucketTotal> buckets) {
+            float[] totals = new float[CHART_DAYS];
+            for (BucketTotal bucket : buckets) {
+                int index = (int) (bucket.getStartDay() - firstDay);
+                if (index >= 0 && index < CHART_DAYS) {
+                    totals[index] = bucket.getTotal().toFloat();
+                }
+            }
 
-            if (dailyTotals.containsKey(day)) {
-                float current = dailyTotals.get(day);
-                dailyTotals.put(day, current + (float) expense.getAmount());
+            String[] labels = new String[CHART_DAYS];
+            for (int i = 0; i < CHART_DAYS; i++) {
+                labels[i] = DAY_LABELS[CalendarPeriods.dayOfWeek(firstDay + i) - 1];
             }
-        }
 
-        // Create bar entries
-        List<BarEntry> entries = new ArrayList<>();
-        for (int i = 0; i < days.size(); i++) {
-            String day = days.get(i);
-            float total = dailyTotals.get(day);
-            entries.add(new BarEntry(i, total));
+            int[] colors = new int[CHART_DAYS];
+            Arrays.fill(colors, BAR_COLOR);
+            return new ChartPipeline.Model(totals, labels, colors);
         }
 
-        BarDataSet dataSet = new BarDataSet(entries, "Daily Spending");
-        dataSet.setColor(Color.parseColor("#4CAF50"));
-        dataSet.setValueTextSize(12f);
-
-        BarData data = new BarData(dataSet);
-
-        spendingBarChart.setData(data);
-        spendingBarChart.getDescription().setEnabled(false);
-
-        // X-axis configuration
-        XAxis xAxis = spendingBarChart.getXAxis();
-        xAxis.setValueFormatter(new IndexAxisValueFormatter(days));
-        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
-        xAxis.setGranularity(1f);
-        xAxis.setGranularityEnabled(true);
-
-        spendingBarChart.animateY(1000);
-        spendingBarChart.invalidate();
-    }
+        @Override
+        public BarData buildData(ChartPipeline.Model model) {
+            List<BarEntry> entries = new ArrayList<>(model.values.length);
+            for (int i = 0; i < model.values.length; i++) {
+                entries.add(new BarEntry(i, model.values[i]));
+            }
 
-    private String getDayLabel(Calendar calendar) {
-        String[] days = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
-        return days[calendar.get(Calendar.DAY_OF_WEEK) - 1];
+            BarDataSet dataSet = new BarDataSet(entries, "Daily Spending");
+            dataSet.setColor(BAR_COLOR);
+            dataSet.setValueTextSize(12f);
+            return new BarData(dataSet);
+        }
     }
 }
-
@@ -9,14 +9,13 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.smartexpense.app.model.User;
 import com.smartexpense.app.repository.AuthRepository;
-
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.smartexpense.app.utils.AppExecutors;
+import com.smartexpense.app.utils.AppExecutors.Priority;
 
 public class AuthViewModel extends AndroidViewModel {
 
     private AuthRepository authRepository;
-    private ExecutorService executorService;
+    private AppExecutors appExecutors;
 
     private MutableLiveData<Boolean> loginSuccess = new MutableLiveData<>();
     private MutableLiveData<String> loginError = new MutableLiveData<>();
@@ -29,12 +28,12 @@ public class AuthViewModel extends AndroidViewModel {
     public AuthViewModel(@NonNull Application application) {
         super(application);
         authRepository = new AuthRepository(application);
-        executorService = Executors.newSingleThreadExecutor();
+        appExecutors = AppExecutors.getInstance();
     }
 
     // Login
     public void login(String email, String password) {
-        executorService.execute(() -> {
+        appExecutors.reader(Priority.INTERACTIVE).execute(() -> {
             User user = authRepository.loginUser(email, password);
             if (user != null) {
                 loggedInUser.postValue(user);
@@ -48,7 +47,7 @@ public class AuthViewModel extends AndroidViewModel {
 
     // Register
     public void register(User user) {
-        executorService.execute(() -> {
+        appExecutors.writer(Priority.INTERACTIVE).execute(() -> {
             long result = authRepository.registerUser(user);
             if (result > 0) {
                 registerSuccess.postValue(true);
@@ -79,13 +78,5 @@ public class AuthViewModel extends AndroidViewModel {
     public LiveData<User> getLoggedInUser() {
         return loggedInUser;
     }
-
-    @Override
-    protected void onCleared() {
-        super.onCleared();
-        if (executorService != null) {
-            executorService.shutdown();
-        }
-    }
 }
 
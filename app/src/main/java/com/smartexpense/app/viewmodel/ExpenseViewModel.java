@@ -1,30 +1,88 @@
 package com.smartexpense.app.viewmodel;
 
 import android.app.Application;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
+import com.smartexpense.app.database.CategoryRegistry;
+import com.smartexpense.app.database.DatabaseHelper;
+import com.smartexpense.app.database.InvalidationTracker;
+import com.smartexpense.app.model.BucketTotal;
+import com.smartexpense.app.model.Category;
 import com.smartexpense.app.model.CategoryTotal;
+import com.smartexpense.app.model.DashboardSummary;
 import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.ExpensePage;
+import com.smartexpense.app.model.ReportPeriod;
+import com.smartexpense.app.model.TimeBucket;
+import com.smartexpense.app.repository.ExpenseCsvImporter;
+import com.smartexpense.app.repository.ExpenseExporter;
 import com.smartexpense.app.repository.ExpenseRepository;
+import com.smartexpense.app.utils.AppExecutors;
+import com.smartexpense.app.utils.AppExecutors.Priority;
+import com.smartexpense.app.utils.CalendarPeriods;
+import com.smartexpense.app.utils.DashboardSnapshotStore;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ExpenseViewModel extends AndroidViewModel {
 
+    // Rows per page for the paged expense list
+    public static final int PAGE_SIZE = 50;
+
     private ExpenseRepository expenseRepository;
-    private ExecutorService executorService;
+    private AppExecutors appExecutors;
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+    private SearchScheduler searchScheduler;
 
     private MutableLiveData<List<Expense>> expensesList = new MutableLiveData<>();
-    private MutableLiveData<Double> todayTotal = new MutableLiveData<>();
-    private MutableLiveData<Double> weekTotal = new MutableLiveData<>();
-    private MutableLiveData<Double> monthTotal = new MutableLiveData<>();
-    private MutableLiveData<List<CategoryTotal>> categoryTotals = new MutableLiveData<>();
+    private MutableLiveData<ExpensePage> expensePage = new MutableLiveData<>();
+    // Tables whose changes affect expense queries
+    private static final String[] EXPENSE_TABLES = {
+        DatabaseHelper.TABLE_EXPENSES, DatabaseHelper.TABLE_DAILY_TOTALS
+    };
+    private static final String[] CATEGORY_TABLES = {DatabaseHelper.TABLE_CATEGORIES};
+
+    // Queries kept current by change notifications, created on first use for the signed-in user
+    private QueryLiveData<DashboardSummary> dashboardSummary;
+    private QueryLiveData<List<Category>> categories;
+    // One per distinct (user, bucket, start, end, category) asked for, so each call gets its own range
+    private final Map<List<Object>, QueryLiveData<List<BucketTotal>>> bucketTotals = new HashMap<>();
+    // One breakdown per period seen, kept so switching back shows the last result at once
+    private final EnumMap<ReportPeriod, QueryLiveData<List<CategoryTotal>>> breakdowns =
+        new EnumMap<>(ReportPeriod.class);
+    private MutableLiveData<ReportPeriod> breakdownPeriod = new MutableLiveData<>(ReportPeriod.THIS_MONTH);
+    private LiveData<List<CategoryTotal>> categoryBreakdown;
+    private DashboardSnapshotStore snapshotStore;
+    // Last summary saved as the dashboard snapshot
+    private volatile DashboardSummary savedSummary;
+
+    private MutableLiveData<Integer> expenseChanges;
+    private InvalidationTracker.Observer expenseChangeObserver;
+    private final AtomicBoolean expenseChangePending = new AtomicBoolean();
+
+    private MutableLiveData<Integer> bulkProgress = new MutableLiveData<>();
+    private MutableLiveData<Integer> importProgress = new MutableLiveData<>();
+    private MutableLiveData<ExpenseCsvImporter.Result> importResult = new MutableLiveData<>();
+    private volatile ExpenseCsvImporter csvImporter;
+    private MutableLiveData<Integer> exportProgress = new MutableLiveData<>();
+    private MutableLiveData<Integer> exportResult = new MutableLiveData<>();
 
     private MutableLiveData<Boolean> operationSuccess = new MutableLiveData<>();
     private MutableLiveData<String> operationError = new MutableLiveData<>();
@@ -32,41 +90,176 @@ public class ExpenseViewModel extends AndroidViewModel {
     public ExpenseViewModel(@NonNull Application application) {
         super(application);
         expenseRepository = new ExpenseRepository(application);
-        executorService = Executors.newSingleThreadExecutor();
+        snapshotStore = new DashboardSnapshotStore(application);
+        appExecutors = AppExecutors.getInstance();
+        searchScheduler = new SearchScheduler(mainHandler, appExecutors.reader(Priority.INTERACTIVE),
+            SearchScheduler.DEFAULT_DEBOUNCE_MILLIS);
+        // Totals read before the rebuild are refreshed by its change notification
+        appExecutors.writer(Priority.INTERACTIVE).execute(expenseRepository::rebuildDailyTotalsIfTimeZoneChanged);
     }
 
-    // Load all expenses
-    public void loadExpenses(int userId) {
-        executorService.execute(() -> {
-            List<Expense> expenses = expenseRepository.getAllExpenses(userId);
-            expensesList.postValue(expenses);
+    // Load one page of expenses after the given (date, id) key
+    public void loadExpensePage(int userId, int generation, int pageIndex, long afterDate, int afterId) {
+        appExecutors.reader(Priority.INTERACTIVE).execute(() -> {
+            List<Expense> expenses = expenseRepository.getExpensesPage(userId, afterDate, afterId, PAGE_SIZE);
+            ExpensePage page = new ExpensePage(generation, pageIndex, expenses, expenses.size() < PAGE_SIZE);
+            // setValue on the main thread so pages arriving back to back are never coalesced
+            mainHandler.post(() -> expensePage.setValue(page));
         });
     }
 
-    // Load totals
-    public void loadTotals(int userId) {
-        executorService.execute(() -> {
-            double today = expenseRepository.getTodayTotal(userId);
-            double week = expenseRepository.getWeekTotal(userId);
-            double month = expenseRepository.getMonthTotal(userId);
+    // Today, week and month totals from one query, re-run when the user's expenses or the local day change.
+    // The last saved summary is shown until the first query returns.
+    public LiveData<DashboardSummary> getDashboardSummary(int userId) {
+        if (dashboardSummary == null) {
+            DashboardSummary snapshot = snapshotStore.load(userId);
+            savedSummary = snapshot;
+            dashboardSummary = new QueryLiveData<>(expenseRepository.getInvalidationTracker(),
+                appExecutors.reader(Priority.NORMAL),
+                () -> {
+                    DashboardSummary summary = expenseRepository.getDashboardSummary(userId);
+                    if (!summary.equals(savedSummary)) {
+                        savedSummary = summary;
+                        snapshotStore.save(userId, summary);
+                    }
+                    return summary;
+                },
+                EXPENSE_TABLES, userId, Long.MIN_VALUE, Long.MAX_VALUE);
+            // Today, week and month move at midnight without any write
+            dashboardSummary.setFollowsToday();
+            dashboardSummary.setInitialValue(snapshot);
+        }
+        return dashboardSummary;
+    }
 
-            todayTotal.postValue(today);
-            weekTotal.postValue(week);
-            monthTotal.postValue(month);
-        });
+    // Category totals of the selected period, follows setBreakdownPeriod
+    public LiveData<List<CategoryTotal>> getCategoryBreakdown(int userId) {
+        if (categoryBreakdown == null) {
+            categoryBreakdown = Transformations.switchMap(breakdownPeriod,
+                period -> getCategoryBreakdown(userId, period));
+        }
+        return categoryBreakdown;
     }
 
-    // Load category totals
-    public void loadCategoryTotals(int userId) {
-        executorService.execute(() -> {
-            List<CategoryTotal> totals = expenseRepository.getCategoryTotals(userId);
-            categoryTotals.postValue(totals);
-        });
+    // Category totals of one period, re-read when the user's expenses change or the period is picked
+    // again. The range is worked out on every run, so a period follows today across midnight and
+    // month ends. Past periods come from the repository's cache after the first load.
+    // The last saved breakdown of the period is shown until the first query returns.
+    private LiveData<List<CategoryTotal>> getCategoryBreakdown(int userId, ReportPeriod period) {
+        QueryLiveData<List<CategoryTotal>> breakdown = breakdowns.get(period);
+        if (breakdown == null) {
+            List<CategoryTotal> snapshot = snapshotStore.loadBreakdown(userId, period);
+            AtomicReference<List<CategoryTotal>> saved = new AtomicReference<>(snapshot);
+            // The range moves, so every change to the user's expenses is watched
+            breakdown = new QueryLiveData<>(expenseRepository.getInvalidationTracker(),
+                appExecutors.reader(Priority.INTERACTIVE),
+                () -> {
+                    long[] range = periodRange(period);
+                    List<CategoryTotal> categoryTotals =
+                        expenseRepository.getCategoryTotals(userId, range[0], range[1]);
+                    if (!categoryTotals.equals(saved.getAndSet(categoryTotals))) {
+                        snapshotStore.saveBreakdown(userId, period, categoryTotals);
+                    }
+                    return categoryTotals;
+                },
+                EXPENSE_TABLES, userId, Long.MIN_VALUE, Long.MAX_VALUE);
+            breakdown.setFollowsToday();
+            breakdown.setInitialValue(snapshot);
+            breakdowns.put(period, breakdown);
+        } else {
+            // Shown at once with the last result, the day may have moved on since
+            breakdown.refresh();
+        }
+        return breakdown;
+    }
+
+    public void setBreakdownPeriod(ReportPeriod period) {
+        if (period != breakdownPeriod.getValue()) {
+            breakdownPeriod.setValue(period);
+        }
+    }
+
+    public LiveData<ReportPeriod> getBreakdownPeriod() {
+        return breakdownPeriod;
+    }
+
+    // [start, end] timestamps of a period on the local calendar as of today
+    private static long[] periodRange(ReportPeriod period) {
+        if (period == ReportPeriod.ALL_TIME) {
+            return new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
+        }
+        CalendarPeriods.Periods periods = CalendarPeriods.current();
+        switch (period) {
+            case LAST_MONTH:
+                return new long[]{CalendarPeriods.startOfDay(periods.getPreviousMonthStart()),
+                    CalendarPeriods.startOfDay(periods.getMonthStart()) - 1};
+            case LAST_30_DAYS:
+                return new long[]{CalendarPeriods.startOfDay(periods.getToday() - 29), periods.getDayEndMillis()};
+            case THIS_YEAR:
+                return new long[]{CalendarPeriods.startOfDay(periods.getYearStart()), periods.getDayEndMillis()};
+            case THIS_MONTH:
+            default:
+                return new long[]{CalendarPeriods.startOfDay(periods.getMonthStart()), periods.getDayEndMillis()};
+        }
+    }
+
+    // Totals per bucket over a date range, re-read when an expense inside the range changes.
+    // Calls with the same arguments share one LiveData.
+    public LiveData<List<BucketTotal>> getTotalsByBucket(int userId, TimeBucket bucket, long startDate,
+                                                         long endDate, int categoryId) {
+        List<Object> key = Arrays.asList(userId, bucket, startDate, endDate, categoryId);
+        QueryLiveData<List<BucketTotal>> totals = bucketTotals.get(key);
+        if (totals == null) {
+            totals = new QueryLiveData<>(expenseRepository.getInvalidationTracker(),
+                appExecutors.reader(Priority.NORMAL),
+                () -> expenseRepository.getTotalsByBucket(userId, bucket, startDate, endDate, categoryId),
+                EXPENSE_TABLES, userId, startDate, endDate);
+            bucketTotals.put(key, totals);
+        }
+        return totals;
+    }
+
+    // Categories a user can pick, re-read when the user adds one
+    public LiveData<List<Category>> getCategories(int userId) {
+        if (categories == null) {
+            categories = new QueryLiveData<>(expenseRepository.getInvalidationTracker(),
+                appExecutors.reader(Priority.INTERACTIVE),
+                () -> expenseRepository.getCategories(userId),
+                CATEGORY_TABLES, userId, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+        return categories;
+    }
+
+    // Category names and colors for binding rows and charts
+    public CategoryRegistry getCategoryRegistry() {
+        return expenseRepository.getCategoryRegistry();
+    }
+
+    // Counts committed changes to a user's expenses, for screens that decide themselves what to reload.
+    // Changes arriving together are delivered once.
+    public LiveData<Integer> getExpenseChanges(int userId) {
+        if (expenseChanges == null) {
+            expenseChanges = new MutableLiveData<>();
+            expenseChangeObserver = change -> {
+                if (change.overlaps(EXPENSE_TABLES, userId, Long.MIN_VALUE, Long.MAX_VALUE)
+                        && expenseChangePending.compareAndSet(false, true)) {
+                    mainHandler.post(this::dispatchExpenseChange);
+                }
+            };
+            expenseRepository.getInvalidationTracker().addObserver(expenseChangeObserver);
+        }
+        return expenseChanges;
+    }
+
+    private void dispatchExpenseChange() {
+        expenseChangePending.set(false);
+        Integer count = expenseChanges.getValue();
+        expenseChanges.setValue(count == null ? 1 : count + 1);
     }
 
     // Add expense
     public void addExpense(Expense expense) {
-        executorService.execute(() -> {
+        appExecutors.writer(Priority.INTERACTIVE).execute(() -> {
             long result = expenseRepository.addExpense(expense);
             if (result > 0) {
                 operationSuccess.postValue(true);
@@ -77,9 +270,78 @@ public class ExpenseViewModel extends AndroidViewModel {
         });
     }
 
+    // Add many expenses at once, progress is posted as a percentage
+    public void addExpenses(List<Expense> expenses) {
+        appExecutors.writer(Priority.BACKGROUND).execute(() -> {
+            bulkProgress.postValue(0);
+            try {
+                expenseRepository.addExpenses(expenses, (done, total) ->
+                    bulkProgress.postValue(total == 0 ? 100 : (int) (done * 100L / total)));
+                operationSuccess.postValue(true);
+            } catch (RuntimeException e) {
+                operationError.postValue("Failed to add expenses");
+                operationSuccess.postValue(false);
+            }
+        });
+    }
+
+    // Import expenses from a CSV document, progress is posted as the number of rows read.
+    // The file is parsed on the jobs lane, only the chunk commits take turns on the writer.
+    public void importExpenses(Uri uri, int userId) {
+        ExpenseCsvImporter importer =
+            expenseRepository.createCsvImporter(appExecutors.writer(Priority.BACKGROUND));
+        csvImporter = importer;
+        appExecutors.jobs().execute(() -> {
+            try (InputStream input = getApplication().getContentResolver().openInputStream(uri)) {
+                if (input == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                ExpenseCsvImporter.Result result = importer.importExpenses(input, userId,
+                    (rowsRead, rowsImported) -> importProgress.postValue(rowsRead));
+                importResult.postValue(result);
+            } catch (IOException | RuntimeException e) {
+                operationError.postValue("Failed to import expenses");
+            } finally {
+                if (csvImporter == importer) {
+                    csvImporter = null;
+                }
+            }
+        });
+    }
+
+    // Cancel a running import, chunks already committed are kept
+    public void cancelImport() {
+        ExpenseCsvImporter importer = csvImporter;
+        if (importer != null) {
+            importer.cancel();
+        }
+    }
+
+    public boolean isImporting() {
+        return csvImporter != null;
+    }
+
+    // Export a user's expenses to a document, progress is posted as a percentage
+    public void exportExpenses(Uri uri, int userId, String category, int format, boolean gzip) {
+        ExpenseExporter exporter = expenseRepository.createExporter();
+        appExecutors.jobs().execute(() -> {
+            try (OutputStream output = getApplication().getContentResolver().openOutputStream(uri)) {
+                if (output == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                int written = exporter.export(userId, Long.MIN_VALUE, Long.MAX_VALUE, category,
+                    format, gzip, output,
+                    (done, total) -> exportProgress.postValue(total == 0 ? 100 : (int) (done * 100L / total)));
+                exportResult.postValue(written);
+            } catch (IOException | RuntimeException e) {
+                operationError.postValue("Failed to export expenses");
+            }
+        });
+    }
+
     // Update expense
     public void updateExpense(Expense expense) {
-        executorService.execute(() -> {
+        appExecutors.writer(Priority.INTERACTIVE).execute(() -> {
             boolean result = expenseRepository.updateExpense(expense);
             if (result) {
                 operationSuccess.postValue(true);
@@ -92,7 +354,7 @@ public class ExpenseViewModel extends AndroidViewModel {
 
     // Delete expense
     public void deleteExpense(int expenseId) {
-        executorService.execute(() -> {
+        appExecutors.writer(Priority.INTERACTIVE).execute(() -> {
             boolean result = expenseRepository.deleteExpense(expenseId);
             if (result) {
                 operationSuccess.postValue(true);
@@ -103,20 +365,27 @@ public class ExpenseViewModel extends AndroidViewModel {
         });
     }
 
-    // Search expenses
+    // Search expenses once typing pauses, a newer search or filter replaces this one
     public void searchExpenses(int userId, String query) {
-        executorService.execute(() -> {
-            List<Expense> expenses = expenseRepository.searchExpenses(userId, query);
-            expensesList.postValue(expenses);
-        });
+        searchScheduler.schedule(
+            cancellationSignal -> expenseRepository.searchExpenses(userId, query, cancellationSignal),
+            expensesList::setValue);
     }
 
-    // Filter by category
+    // Filter by category right away, replacing any pending search
     public void filterByCategory(int userId, String category) {
-        executorService.execute(() -> {
-            List<Expense> expenses = expenseRepository.getExpensesByCategory(userId, category);
-            expensesList.postValue(expenses);
-        });
+        searchScheduler.schedule(
+            cancellationSignal -> expenseRepository.getExpensesByCategory(userId, category),
+            expensesList::setValue, 0);
+    }
+
+    // Drop pending and running searches, e.g. when going back to the paged list
+    public void cancelSearch() {
+        searchScheduler.cancel();
+    }
+
+    public void setSearchDebounceMillis(long debounceMillis) {
+        searchScheduler.setDebounceMillis(debounceMillis);
     }
 
     // LiveData getters
@@ -124,20 +393,28 @@ public class ExpenseViewModel extends AndroidViewModel {
         return expensesList;
     }
 
-    public LiveData<Double> getTodayTotal() {
-        return todayTotal;
+    public LiveData<ExpensePage> getExpensePage() {
+        return expensePage;
     }
 
-    public LiveData<Double> getWeekTotal() {
-        return weekTotal;
+    public LiveData<Integer> getBulkProgress() {
+        return bulkProgress;
     }
 
-    public LiveData<Double> getMonthTotal() {
-        return monthTotal;
+    public LiveData<Integer> getImportProgress() {
+        return importProgress;
     }
 
-    public LiveData<List<CategoryTotal>> getCategoryTotals() {
-        return categoryTotals;
+    public LiveData<ExpenseCsvImporter.Result> getImportResult() {
+        return importResult;
+    }
+
+    public LiveData<Integer> getExportProgress() {
+        return exportProgress;
+    }
+
+    public LiveData<Integer> getExportResult() {
+        return exportResult;
     }
 
     public LiveData<Boolean> getOperationSuccess() {
@@ -151,9 +428,25 @@ public class ExpenseViewModel extends AndroidViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
-        if (executorService != null) {
-            executorService.shutdown();
+        cancelImport();
+        searchScheduler.cancel();
+        for (QueryLiveData<?> query : new QueryLiveData<?>[]{
+                dashboardSummary, categories}) {
+            if (query != null) {
+                query.dispose();
+            }
+        }
+        for (QueryLiveData<?> totals : bucketTotals.values()) {
+            totals.dispose();
+        }
+        for (QueryLiveData<?> breakdown : breakdowns.values()) {
+            breakdown.dispose();
+        }
+        if (expenseChangeObserver != null) {
+            expenseRepository.getInvalidationTracker().removeObserver(expenseChangeObserver);
         }
+        // The executors and the connection are shared, queued work finishes and its results are dropped
+        mainHandler.removeCallbacksAndMessages(null);
     }
 }
 
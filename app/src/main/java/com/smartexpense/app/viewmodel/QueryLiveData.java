@@ -0,0 +1,136 @@
+package com.smartexpense.app.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+
+import com.smartexpense.app.database.InvalidationTracker;
+import com.smartexpense.app.utils.CalendarPeriods;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// LiveData holding a query result that re-runs the query only when a committed write overlaps
+// its tables, user and date range. Changes seen while nobody observes are applied on the next start.
+public class QueryLiveData<T> extends LiveData<T> implements InvalidationTracker.Observer {
+
+    private final InvalidationTracker tracker;
+    private final Executor executor;
+    private final Callable<T> query;
+    private final String[] tables;
+    private final int userId;
+    private final long startDate;
+    private final long endDate;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only
+    private boolean stale = true;
+    // Results depend on today's date, they are refreshed when the local day changes
+    private boolean followsToday;
+    // Local day of the last run, main thread only
+    private long queriedDay;
+    private final Runnable newDayRefresh = this::refresh;
+    // Last result, used to skip posting an identical value
+    private volatile T lastResult;
+    // Newest run, runs may overlap on the executor and only the newest one posts
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public QueryLiveData(InvalidationTracker tracker, Executor executor, Callable<T> query,
+                         String[] tables, int userId, long startDate, long endDate) {
+        this.tracker = tracker;
+        this.executor = executor;
+        this.query = query;
+        this.tables = tables;
+        this.userId = userId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        tracker.addObserver(this);
+    }
+
+    // Seed with a value known before the first query, like a saved snapshot; main thread only
+    public void setInitialValue(T value) {
+        if (getValue() == null && value != null) {
+            lastResult = value;
+            setValue(value);
+        }
+    }
+
+    // Also run the query when the local day has changed since its last run, for results like
+    // "today" or "this month" that move without any write; main thread only
+    public void setFollowsToday() {
+        followsToday = true;
+    }
+
+    // Run the query again even though no change was reported; main thread only
+    public void refresh() {
+        stale = true;
+        if (hasActiveObservers()) {
+            runQuery();
+        }
+    }
+
+    // Stop listening for changes, call when the owner is cleared
+    public void dispose() {
+        tracker.removeObserver(this);
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    @Override
+    protected void onActive() {
+        if (stale || (followsToday && CalendarPeriods.current().getToday() != queriedDay)) {
+            runQuery();
+        }
+        if (followsToday) {
+            scheduleNewDayRefresh();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        mainHandler.removeCallbacks(newDayRefresh);
+    }
+
+    // Refresh just after local midnight while observed
+    private void scheduleNewDayRefresh() {
+        mainHandler.removeCallbacks(newDayRefresh);
+        long untilTomorrow = CalendarPeriods.current().getDayEndMillis() + 1 - System.currentTimeMillis();
+        mainHandler.postDelayed(newDayRefresh, Math.max(0, untilTomorrow));
+    }
+
+    @Override
+    public void onInvalidated(InvalidationTracker.Change change) {
+        if (change.overlaps(tables, userId, startDate, endDate)) {
+            mainHandler.post(this::refresh);
+        }
+    }
+
+    private void runQuery() {
+        stale = false;
+        if (followsToday) {
+            queriedDay = CalendarPeriods.current().getToday();
+            if (hasActiveObservers()) {
+                scheduleNewDayRefresh();
+            }
+        }
+        int run = generation.incrementAndGet();
+        executor.execute(() -> {
+            T result;
+            try {
+                result = query.call();
+            } catch (Exception e) {
+                mainHandler.post(() -> stale = true);
+                return;
+            }
+            // An older run finishing last would otherwise replace a newer result
+            synchronized (this) {
+                if (run == generation.get() && !Objects.equals(result, lastResult)) {
+                    lastResult = result;
+                    postValue(result);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package com.smartexpense.app.viewmodel;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.OperationCanceledException;
+
+import java.util.concurrent.Executor;
+
+// Runs list queries driven by user input so that only the newest one is ever published.
+// A query waits for the debounce window, scheduling another one before it starts replaces it,
+// and one already running is cancelled through its CancellationSignal. Call from the main thread.
+public class SearchScheduler {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    public interface Query<T> {
+        // Run on the executor, should pass the signal down to the database
+        T run(CancellationSignal cancellationSignal);
+    }
+
+    public interface Callback<T> {
+        // Called on the main thread, only for the newest query
+        void onResult(T result);
+    }
+
+    private final Handler mainHandler;
+    private final Executor executor;
+    private long debounceMillis;
+
+    // Generation of the newest query, results tagged with an older one are dropped
+    private int generation;
+    private Runnable pendingStart;
+    private CancellationSignal inFlight;
+
+    public SearchScheduler(Handler mainHandler, Executor executor, long debounceMillis) {
+        this.mainHandler = mainHandler;
+        this.executor = executor;
+        this.debounceMillis = debounceMillis;
+    }
+
+    public void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    // Run after the debounce window unless replaced first
+    public <T> void schedule(Query<T> query, Callback<T> callback) {
+        schedule(query, callback, debounceMillis);
+    }
+
+    // Run after delayMillis, 0 for a query that should not wait like a filter choice
+    public <T> void schedule(Query<T> query, Callback<T> callback, long delayMillis) {
+        cancel();
+        int queryGeneration = generation;
+        pendingStart = () -> {
+            pendingStart = null;
+            start(queryGeneration, query, callback);
+        };
+        if (delayMillis > 0) {
+            mainHandler.postDelayed(pendingStart, delayMillis);
+        } else {
+            pendingStart.run();
+        }
+    }
+
+    // Drop the waiting query, cancel the running one and ignore any result still on its way
+    public void cancel() {
+        generation++;
+        if (pendingStart != null) {
+            mainHandler.removeCallbacks(pendingStart);
+            pendingStart = null;
+        }
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    private <T> void start(int queryGeneration, Query<T> query, Callback<T> callback) {
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        inFlight = cancellationSignal;
+        executor.execute(() -> {
+            // Superseded while still queued behind other work
+            if (cancellationSignal.isCanceled()) {
+                return;
+            }
+            T result;
+            try {
+                result = query.run(cancellationSignal);
+            } catch (OperationCanceledException e) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (queryGeneration != generation) {
+                    return;
+                }
+                inFlight = null;
+                callback.onResult(result);
+            });
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.smartexpense.app.database;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SearchQueriesTest {
+
+    @Test
+    public void matchQueryPrefixesEveryWord() {
+        assertEquals("coff*", SearchQueries.buildMatchQuery("coff"));
+        assertEquals("coffee* shop*", SearchQueries.buildMatchQuery("  Coffee   shop "));
+        assertEquals("12* 50*", SearchQueries.buildMatchQuery("12.50"));
+        assertEquals("caf\u00e9*", SearchQueries.buildMatchQuery("Caf\u00c9"));
+    }
+
+    @Test
+    public void matchQueryLowerCasesOperatorWords() {
+        assertEquals("coffee* or* tea*", SearchQueries.buildMatchQuery("coffee OR tea"));
+        assertEquals("not* and*", SearchQueries.buildMatchQuery("NOT AND"));
+        assertEquals("near* 3*", SearchQueries.buildMatchQuery("NEAR/3"));
+    }
+
+    @Test
+    public void matchQueryDropsOperatorCharacters() {
+        assertEquals("lunch* team*", SearchQueries.buildMatchQuery("\"lunch team\""));
+        assertEquals("rent* july*", SearchQueries.buildMatchQuery("-rent (july*)"));
+        assertEquals("description* taxi*", SearchQueries.buildMatchQuery("description:taxi"));
+        assertEquals("a* b*", SearchQueries.buildMatchQuery("a^b"));
+    }
+
+    @Test
+    public void matchQueryIsNullWithoutWords() {
+        assertNull(SearchQueries.buildMatchQuery(""));
+        assertNull(SearchQueries.buildMatchQuery("   "));
+        assertNull(SearchQueries.buildMatchQuery("\"*-()%"));
+    }
+
+    @Test
+    public void matchQueryIgnoresDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            // A Turkish lower case would turn the I into a dotless i
+            assertEquals("title* or*", SearchQueries.buildMatchQuery("TITLE OR"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void escapeLikeEscapesWildcardsAndEscapeCharacter() {
+        assertEquals("coffee", SearchQueries.escapeLike("coffee"));
+        assertEquals("50\\%", SearchQueries.escapeLike("50%"));
+        assertEquals("a\\_b", SearchQueries.escapeLike("a_b"));
+        assertEquals("c:\\\\tmp", SearchQueries.escapeLike("c:\\tmp"));
+        assertEquals("", SearchQueries.escapeLike(""));
+    }
+}
@@ -0,0 +1,89 @@
+package com.smartexpense.app.model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MoneyTest {
+
+    @Test
+    public void parseRoundsHalfUpToWholeCents() {
+        assertEquals(1250, Money.parse("12.5").getMinorUnits());
+        assertEquals(1200, Money.parse(" 12 ").getMinorUnits());
+        assertEquals(1, Money.parse("0.005").getMinorUnits());
+        assertEquals(0, Money.parse("0.0049").getMinorUnits());
+        assertEquals(1000, Money.parse("9.995").getMinorUnits());
+        // Exact in decimal, although 0.1 + 0.2 is not in a double
+        assertEquals(30, Money.parse("0.1").plus(Money.parse("0.2")).getMinorUnits());
+    }
+
+    @Test
+    public void parseRoundsNegativeAmountsAwayFromZero() {
+        assertEquals(-1205, Money.parse("-12.05").getMinorUnits());
+        assertEquals(-1, Money.parse("-0.005").getMinorUnits());
+        assertEquals(0, Money.parse("-0.004").getMinorUnits());
+    }
+
+    @Test
+    public void parseOfZeroIsTheSharedInstance() {
+        assertSame(Money.ZERO, Money.parse("0.00"));
+        assertSame(Money.ZERO, Money.parse("-0.001"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseRejectsText() {
+        Money.parse("12,50");
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void parseRejectsAmountsBeyondLongCents() {
+        Money.parse("100000000000000000000");
+    }
+
+    @Test
+    public void appendPlainWritesTwoDecimals() {
+        assertEquals("0.00", plain(0));
+        assertEquals("0.05", plain(5));
+        assertEquals("0.50", plain(50));
+        assertEquals("12.05", plain(1205));
+        assertEquals("1000.00", plain(100000));
+    }
+
+    @Test
+    public void appendPlainWritesNegativeAmounts() {
+        assertEquals("-0.05", plain(-5));
+        assertEquals("-0.50", plain(-50));
+        assertEquals("-12.05", plain(-1205));
+    }
+
+    @Test
+    public void appendPlainMatchesBigDecimal() {
+        long[] values = {Long.MAX_VALUE, Long.MIN_VALUE + 1, 99, -99, 100, -100, 123456789};
+        for (long value : values) {
+            assertEquals(BigDecimal.valueOf(value, Money.SCALE).toPlainString(), plain(value));
+        }
+    }
+
+    @Test
+    public void appendPlainAppendsToExistingText() {
+        StringBuilder builder = new StringBuilder("Total: ");
+        Money.appendPlain(builder, -7);
+        assertEquals("Total: -0.07", builder.toString());
+    }
+
+    @Test
+    public void parseAndPlainRoundTrip() {
+        for (long value = -100000; value <= 100000; value += 37) {
+            assertEquals(value, Money.parse(plain(value)).getMinorUnits());
+        }
+    }
+
+    private static String plain(long minorUnits) {
+        StringBuilder builder = new StringBuilder();
+        Money.appendPlain(builder, minorUnits);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.smartexpense.app.repository;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CsvReaderTest {
+
+    @Test
+    public void readsPlainRecords() throws IOException {
+        ExpenseCsvImporter.CsvReader reader = reader("date,amount\n2024-01-02,12.50\n");
+        assertEquals(Arrays.asList("date", "amount"), reader.readRecord());
+        assertEquals(Arrays.asList("2024-01-02", "12.50"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    public void skipsLeadingByteOrderMark() throws IOException {
+        ExpenseCsvImporter.CsvReader reader = reader("\uFEFFdate,amount\r\n2024-01-02,1\r\n");
+        assertEquals(Arrays.asList("date", "amount"), reader.readRecord());
+        assertEquals(Arrays.asList("2024-01-02", "1"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    public void keepsByteOrderMarkInsideTheFile() throws IOException {
+        ExpenseCsvImporter.CsvReader reader = reader("a\n\uFEFFb\n");
+        assertEquals(Arrays.asList("a"), reader.readRecord());
+        assertEquals(Arrays.asList("\uFEFFb"), reader.readRecord());
+    }
+
+    @Test
+    public void readsQuotedFieldsWithCommasAndDoubledQuotes() throws IOException {
+        ExpenseCsvImporter.CsvReader reader = reader("\"Lunch, team\",\"The \"\"good\"\" cafe\",\"\"\n");
+        assertEquals(Arrays.asList("Lunch, team", "The \"good\" cafe", ""), reader.readRecord());
+    }
+
+    @Test
+    public void keepsLineBreaksInsideQuotes() throws IOException {
+        ExpenseCsvImporter.CsvReader reader = reader("1,\"first line\r\nsecond line\nthird\",x\n2,y,z\n");
+        assertEquals(Arrays.asList("1", "first line\r\nsecond line\nthird", "x"), reader.readRecord());
+        assertEquals(1, reader.getRecordLine());
+        assertEquals(Arrays.asList("2", "y", "z"), reader.readRecord());
+        assertEquals(4, reader.getRecordLine());
+    }
+
+    @Test
+    public void readsLastRecordWithoutLineBreak() throws IOException {
+        ExpenseCsvImporter.CsvReader reader = reader("a,b\r\nc,d");
+        reader.readRecord();
+        assertEquals(Arrays.asList("c", "d"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    public void cutsOverLongRecordAtItsLineEnd() throws IOException {
+        StringBuilder longField = new StringBuilder();
+        while (longField.length() <= ExpenseCsvImporter.MAX_RECORD_LENGTH) {
+            longField.append("0123456789");
+        }
+        ExpenseCsvImporter.CsvReader reader = reader("a,b\n1," + longField + "\n2,ok\n");
+
+        reader.readRecord();
+        reader.readRecord();
+        assertTrue(reader.isRecordTooLong());
+        assertEquals(2, reader.getRecordLine());
+
+        assertEquals(Arrays.asList("2", "ok"), reader.readRecord());
+        assertFalse(reader.isRecordTooLong());
+        assertEquals(3, reader.getRecordLine());
+    }
+
+    @Test
+    public void unterminatedQuoteStopsAtTheLengthLimit() throws IOException {
+        StringBuilder text = new StringBuilder("1,\"never closed\n");
+        // Long enough that buffering stops inside the quote, not at the end of the input
+        while (text.length() <= ExpenseCsvImporter.MAX_RECORD_LENGTH) {
+            text.append("still quoted\n");
+        }
+        text.append("2,ok\n");
+        ExpenseCsvImporter.CsvReader reader = reader(text.toString());
+
+        reader.readRecord();
+        assertTrue(reader.isRecordTooLong());
+
+        List<String> record = reader.readRecord();
+        while (record != null && !record.get(0).equals("2")) {
+            record = reader.readRecord();
+        }
+        assertEquals(Arrays.asList("2", "ok"), record);
+        assertFalse(reader.isRecordTooLong());
+    }
+
+    @Test
+    public void emptyInputHasNoRecords() throws IOException {
+        assertNull(reader("").readRecord());
+        assertNull(reader("\uFEFF").readRecord());
+    }
+
+    private static ExpenseCsvImporter.CsvReader reader(String text) {
+        return new ExpenseCsvImporter.CsvReader(new StringReader(text));
+    }
+}
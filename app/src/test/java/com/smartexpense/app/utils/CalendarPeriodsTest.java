@@ -0,0 +1,153 @@
+package com.smartexpense.app.utils;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class CalendarPeriodsTest {
+
+    // Zones with DST, a 30 minute DST shift and DST changes at midnight
+    private static final String[] ZONES = {
+        "UTC", "America/New_York", "Europe/Berlin", "Australia/Lord_Howe", "America/Sao_Paulo",
+        "America/Havana", "Asia/Kolkata"
+    };
+
+    @Test
+    public void civilDateMatchesLocalDate() {
+        assertEquals(19700101L, CalendarPeriods.civilDate(0));
+        assertEquals(19691231L, CalendarPeriods.civilDate(-1));
+        for (long day = -800000; day <= 800000; day += 37) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            long expected = date.getYear() * 10000L + date.getMonthValue() * 100 + date.getDayOfMonth();
+            assertEquals("day " + day, expected, CalendarPeriods.civilDate(day));
+        }
+    }
+
+    @Test
+    public void daysFromCivilIsInverseOfCivilDate() {
+        assertEquals(epochDay(2000, 2, 29), CalendarPeriods.daysFromCivil(2000, 2, 29));
+        assertEquals(epochDay(2100, 3, 1), CalendarPeriods.daysFromCivil(2100, 3, 1));
+        for (long day = -800000; day <= 800000; day += 37) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            assertEquals("day " + day, day,
+                CalendarPeriods.daysFromCivil(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+        }
+    }
+
+    @Test
+    public void dayOfWeekMatchesLocalDate() {
+        assertEquals(Calendar.THURSDAY, CalendarPeriods.dayOfWeek(0));
+        for (long day = -1000; day <= 1000; day++) {
+            // java.time counts from MONDAY = 1 to SUNDAY = 7, Calendar from SUNDAY = 1
+            int expected = LocalDate.ofEpochDay(day).getDayOfWeek().getValue() % 7 + Calendar.SUNDAY;
+            assertEquals("day " + day, expected, CalendarPeriods.dayOfWeek(day));
+        }
+    }
+
+    @Test
+    public void startOfDayMatchesJavaTimeAcrossDstChanges() {
+        long first = epochDay(2010, 1, 1);
+        long last = epochDay(2025, 12, 31);
+        for (String zone : ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            for (long day = first; day <= last; day++) {
+                long expected = LocalDate.ofEpochDay(day).atStartOfDay(ZoneId.of(zone)).toInstant().toEpochMilli();
+                assertEquals(zone + " day " + LocalDate.ofEpochDay(day), expected,
+                    CalendarPeriods.startOfDay(timeZone, day));
+            }
+        }
+    }
+
+    @Test
+    public void startOfDayIsTheDstChangeWhenMidnightIsSkipped() {
+        // Clocks in Sao Paulo went from 00:00 to 01:00 on 2018-11-04
+        TimeZone timeZone = TimeZone.getTimeZone("America/Sao_Paulo");
+        assertEquals(millis("America/Sao_Paulo", 2018, 11, 4, 1, 0),
+            CalendarPeriods.startOfDay(timeZone, epochDay(2018, 11, 4)));
+    }
+
+    @Test
+    public void dayBoundsFollowDayLength() {
+        TimeZone timeZone = TimeZone.getTimeZone("America/New_York");
+
+        // Clocks went back on 2024-11-03, the day lasted 25 hours
+        CalendarPeriods.Periods fallBack =
+            CalendarPeriods.at(millis("America/New_York", 2024, 11, 3, 12, 0), timeZone, Locale.US);
+        assertEquals(millis("America/New_York", 2024, 11, 3, 0, 0), fallBack.getDayStartMillis());
+        assertEquals(25 * 60 * 60 * 1000L, fallBack.getDayEndMillis() + 1 - fallBack.getDayStartMillis());
+
+        // Clocks went forward on 2024-03-10, the day lasted 23 hours
+        CalendarPeriods.Periods springForward =
+            CalendarPeriods.at(millis("America/New_York", 2024, 3, 10, 12, 0), timeZone, Locale.US);
+        assertEquals(23 * 60 * 60 * 1000L,
+            springForward.getDayEndMillis() + 1 - springForward.getDayStartMillis());
+    }
+
+    @Test
+    public void weekStartFollowsLocale() {
+        TimeZone timeZone = TimeZone.getTimeZone("Europe/Berlin");
+        // Wednesday
+        long wednesday = millis("Europe/Berlin", 2024, 5, 15, 12, 0);
+        assertEquals(epochDay(2024, 5, 12), CalendarPeriods.at(wednesday, timeZone, Locale.US).getWeekStart());
+        assertEquals(epochDay(2024, 5, 13), CalendarPeriods.at(wednesday, timeZone, Locale.GERMANY).getWeekStart());
+
+        // A Sunday is the first day of a US week and the last of a German one
+        long sunday = millis("Europe/Berlin", 2024, 5, 12, 12, 0);
+        assertEquals(epochDay(2024, 5, 12), CalendarPeriods.at(sunday, timeZone, Locale.US).getWeekStart());
+        assertEquals(epochDay(2024, 5, 6), CalendarPeriods.at(sunday, timeZone, Locale.GERMANY).getWeekStart());
+    }
+
+    @Test
+    public void monthAndYearStartAtYearBoundary() {
+        TimeZone timeZone = TimeZone.getTimeZone("Europe/Berlin");
+
+        CalendarPeriods.Periods newYear =
+            CalendarPeriods.at(millis("Europe/Berlin", 2024, 1, 1, 0, 30), timeZone, Locale.GERMANY);
+        assertEquals(epochDay(2024, 1, 1), newYear.getToday());
+        assertEquals(epochDay(2024, 1, 1), newYear.getMonthStart());
+        assertEquals(epochDay(2023, 12, 1), newYear.getPreviousMonthStart());
+        assertEquals(epochDay(2024, 1, 1), newYear.getYearStart());
+
+        CalendarPeriods.Periods newYearsEve =
+            CalendarPeriods.at(millis("Europe/Berlin", 2023, 12, 31, 23, 59), timeZone, Locale.GERMANY);
+        assertEquals(epochDay(2023, 12, 31), newYearsEve.getToday());
+        assertEquals(epochDay(2023, 12, 1), newYearsEve.getMonthStart());
+        assertEquals(epochDay(2023, 11, 1), newYearsEve.getPreviousMonthStart());
+        assertEquals(epochDay(2023, 1, 1), newYearsEve.getYearStart());
+    }
+
+    @Test
+    public void monthStartAfterLeapDay() {
+        TimeZone timeZone = TimeZone.getTimeZone("UTC");
+        CalendarPeriods.Periods periods =
+            CalendarPeriods.at(millis("UTC", 2024, 3, 1, 0, 0), timeZone, Locale.US);
+        assertEquals(epochDay(2024, 3, 1), periods.getMonthStart());
+        assertEquals(epochDay(2024, 2, 1), periods.getPreviousMonthStart());
+        assertEquals(epochDay(2024, 1, 1), periods.getYearStart());
+    }
+
+    @Test
+    public void todayIsTheLocalDayNotTheUtcDay() {
+        // 23:30 on 2024-06-30 in New York is already July in UTC
+        TimeZone timeZone = TimeZone.getTimeZone("America/New_York");
+        CalendarPeriods.Periods periods =
+            CalendarPeriods.at(millis("America/New_York", 2024, 6, 30, 23, 30), timeZone, Locale.US);
+        assertEquals(epochDay(2024, 6, 30), periods.getToday());
+        assertEquals(epochDay(2024, 6, 1), periods.getMonthStart());
+    }
+
+    private static long epochDay(int year, int month, int day) {
+        return LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static long millis(String zone, int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, ZoneId.of(zone)).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,192 @@
+package com.smartexpense.app.benchmark;
+
+import com.smartexpense.app.utils.CalendarPeriods;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// The app's schema, connection settings and rollup maintenance on a desktop SQLite driver.
+// Keep the statements here in step with DatabaseHelper, ExpenseDao and DailyTotalsTable.
+final class BenchmarkDatabase {
+
+    static final int USER_ID = 1;
+    static final int CATEGORY_COUNT = 8;
+    static final long DAY_MILLIS = CalendarPeriods.DAY_MILLIS;
+    // Seeded expenses spread over this many days ending today
+    static final int HISTORY_DAYS = 730;
+
+    static final String[] CATEGORY_NAMES = {
+        "Food", "Transport", "Shopping", "Bills", "Other", "Coffee", "Gym", "Travel"
+    };
+    static final String[] WORDS = {
+        "coffee", "lunch", "groceries", "taxi", "train", "rent", "electricity", "books",
+        "shoes", "dinner", "pharmacy", "cinema", "fuel", "parking", "gift", "internet"
+    };
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE users(id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT, email TEXT UNIQUE," +
+            " password TEXT, security_question TEXT, security_answer TEXT)",
+        "CREATE TABLE categories(id INTEGER PRIMARY KEY AUTOINCREMENT, user_id INTEGER," +
+            " name TEXT NOT NULL COLLATE NOCASE, color INTEGER NOT NULL, UNIQUE(user_id, name)," +
+            " FOREIGN KEY(user_id) REFERENCES users(id))",
+        "CREATE TABLE expenses(id INTEGER PRIMARY KEY AUTOINCREMENT, user_id INTEGER," +
+            " amount INTEGER NOT NULL DEFAULT 0, category_id INTEGER NOT NULL, description TEXT," +
+            " date INTEGER, FOREIGN KEY(user_id) REFERENCES users(id)," +
+            " FOREIGN KEY(category_id) REFERENCES categories(id))",
+        "CREATE TABLE expense_daily_totals(user_id INTEGER NOT NULL, day INTEGER NOT NULL," +
+            " category_id INTEGER NOT NULL, total INTEGER NOT NULL DEFAULT 0," +
+            " count INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(user_id, day, category_id)) WITHOUT ROWID",
+        "CREATE INDEX idx_expenses_user_date ON expenses(user_id, date)",
+        "CREATE INDEX idx_expenses_user_category_date ON expenses(user_id, category_id, date)",
+        "CREATE INDEX idx_expenses_user_date_amount ON expenses(user_id, date, amount)",
+        "CREATE VIRTUAL TABLE expenses_fts USING fts4(content=\"expenses\", description, tokenize=unicode61)",
+        "CREATE TRIGGER expenses_fts_before_delete BEFORE DELETE ON expenses BEGIN" +
+            " DELETE FROM expenses_fts WHERE docid = old.id; END",
+        "CREATE TRIGGER expenses_fts_after_insert AFTER INSERT ON expenses BEGIN" +
+            " INSERT INTO expenses_fts(docid, description) VALUES (new.id, new.description); END"
+    };
+
+    static final String SQL_INSERT_EXPENSE =
+        "INSERT INTO expenses(user_id, amount, category_id, description, date) VALUES (?, ?, ?, ?, ?)";
+    static final String SQL_UPDATE_DAILY =
+        "UPDATE expense_daily_totals SET total = total + ?, count = count + ?" +
+        " WHERE user_id = ? AND day = ? AND category_id = ?";
+    static final String SQL_INSERT_DAILY =
+        "INSERT INTO expense_daily_totals(total, count, user_id, day, category_id) VALUES (?, ?, ?, ?, ?)";
+
+    private BenchmarkDatabase() {
+    }
+
+    // A new database file in the temporary directory, deleted when the JVM exits
+    static String createFile() throws IOException {
+        File file = Files.createTempFile("smartexpense-bench", ".db").toFile();
+        file.deleteOnExit();
+        new File(file.getPath() + "-wal").deleteOnExit();
+        new File(file.getPath() + "-shm").deleteOnExit();
+        return file.getPath();
+    }
+
+    // A connection to an existing file with the settings DatabaseHelper.onConfigure applies
+    static Connection open(String path) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA foreign_keys = ON");
+            statement.execute("PRAGMA page_size = 4096");
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.execute("PRAGMA cache_size = -2048");
+            statement.execute("PRAGMA mmap_size = " + 32L * 1024 * 1024);
+            statement.execute("PRAGMA synchronous = NORMAL");
+        }
+        return connection;
+    }
+
+    // A new database with the app's schema, built-in and user categories and one user
+    static Connection create() throws IOException, SQLException {
+        return create(createFile());
+    }
+
+    static Connection create(String path) throws SQLException {
+        Connection connection = open(path);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+            statement.execute("INSERT INTO users(id, username, email) VALUES (" + USER_ID +
+                ", 'bench', 'bench@example.com')");
+            for (int i = 0; i < CATEGORY_COUNT; i++) {
+                // The first five are built in, like CategoryRegistry.seed
+                statement.execute("INSERT INTO categories(id, user_id, name, color) VALUES (" + (i + 1) +
+                    ", " + (i < 5 ? "NULL" : String.valueOf(USER_ID)) + ", '" + CATEGORY_NAMES[i] +
+                    "', " + i + ")");
+            }
+        }
+        return connection;
+    }
+
+    // Insert rows expenses spread over the last HISTORY_DAYS days with their rollup, in one transaction
+    static void seed(Connection connection, int rows, long seed) throws SQLException {
+        Random random = new Random(seed);
+        long today = CalendarPeriods.current().getToday();
+        Map<Long, long[]> dailyTotals = new HashMap<>();
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(SQL_INSERT_EXPENSE)) {
+            for (int i = 0; i < rows; i++) {
+                long date = CalendarPeriods.startOfDay(today - random.nextInt(HISTORY_DAYS)) +
+                    random.nextInt((int) DAY_MILLIS);
+                int categoryId = 1 + random.nextInt(CATEGORY_COUNT);
+                long amount = 100 + random.nextInt(20000);
+                bindExpense(insert, categoryId, amount, description(random), date);
+                insert.executeUpdate();
+
+                // Batch per (day, category) like DailyTotalsTable.Batch
+                long key = CalendarPeriods.toEpochDay(date) * CATEGORY_COUNT + (categoryId - 1);
+                long[] total = dailyTotals.get(key);
+                if (total == null) {
+                    total = new long[2];
+                    dailyTotals.put(key, total);
+                }
+                total[0] += amount;
+                total[1]++;
+            }
+            try (PreparedStatement insertDaily = connection.prepareStatement(SQL_INSERT_DAILY)) {
+                for (Map.Entry<Long, long[]> entry : dailyTotals.entrySet()) {
+                    long key = entry.getKey();
+                    bindDaily(insertDaily, Math.floorDiv(key, CATEGORY_COUNT),
+                        (int) Math.floorMod(key, CATEGORY_COUNT) + 1, entry.getValue()[0], (int) entry.getValue()[1]);
+                    insertDaily.executeUpdate();
+                }
+            }
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    // Two or three words from WORDS, like a typed description
+    static String description(Random random) {
+        StringBuilder description = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        int words = 1 + random.nextInt(2);
+        for (int i = 0; i < words; i++) {
+            description.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return description.toString();
+    }
+
+    static void bindExpense(PreparedStatement insert, int categoryId, long amount, String description,
+                            long date) throws SQLException {
+        insert.setInt(1, USER_ID);
+        insert.setLong(2, amount);
+        insert.setInt(3, categoryId);
+        insert.setString(4, description);
+        insert.setLong(5, date);
+    }
+
+    // Same column order for SQL_UPDATE_DAILY and SQL_INSERT_DAILY
+    static void bindDaily(PreparedStatement statement, long day, int categoryId, long amount, int count)
+            throws SQLException {
+        statement.setLong(1, amount);
+        statement.setInt(2, count);
+        statement.setInt(3, USER_ID);
+        statement.setLong(4, day);
+        statement.setInt(5, categoryId);
+    }
+
+    static void close(Connection connection) throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+}
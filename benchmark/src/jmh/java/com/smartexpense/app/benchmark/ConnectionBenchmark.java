@@ -0,0 +1,63 @@
+package com.smartexpense.app.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+// Per-query latency through DatabaseHelper's one shared connection, against opening, configuring
+// and closing a connection around every query as the DAOs did before
+public class ConnectionBenchmark {
+
+    private static final String SQL_TOTAL_BY_DAY_RANGE =
+        "SELECT IFNULL(SUM(total), 0) FROM expense_daily_totals WHERE user_id = ? AND day BETWEEN ? AND ?";
+    private static final int PAGE_SIZE = 50;
+    private static final String SQL_FIRST_PAGE =
+        "SELECT id, amount, category_id, description, date FROM expenses WHERE user_id = ?" +
+        " ORDER BY date DESC, id DESC LIMIT " + PAGE_SIZE;
+
+    @Benchmark
+    public long monthTotalSharedConnection(SeededDatabase db) throws SQLException {
+        return monthTotal(db.connection, db);
+    }
+
+    @Benchmark
+    public long monthTotalOpenPerCall(SeededDatabase db) throws SQLException {
+        try (Connection connection = BenchmarkDatabase.open(db.path)) {
+            return monthTotal(connection, db);
+        }
+    }
+
+    @Benchmark
+    public int firstPageSharedConnection(SeededDatabase db) throws SQLException {
+        return firstPage(db.connection);
+    }
+
+    @Benchmark
+    public int firstPageOpenPerCall(SeededDatabase db) throws SQLException {
+        try (Connection connection = BenchmarkDatabase.open(db.path)) {
+            return firstPage(connection);
+        }
+    }
+
+    private static long monthTotal(Connection connection, SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(SQL_TOTAL_BY_DAY_RANGE)) {
+            query.setInt(1, BenchmarkDatabase.USER_ID);
+            query.setLong(2, db.monthStart);
+            query.setLong(3, db.today);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next() ? rows.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static int firstPage(Connection connection) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(SQL_FIRST_PAGE)) {
+            query.setInt(1, BenchmarkDatabase.USER_ID);
+            return ExpenseRows.readAll(query.executeQuery(), new ArrayList<>(PAGE_SIZE)).size();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.smartexpense.app.benchmark;
+
+import com.smartexpense.app.utils.CalendarPeriods;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// The write paths of ExpenseDao: the expense row, its search index entry and its rollup delta
+// in one transaction. Each iteration starts from a fresh database so tables do not keep growing.
+@State(Scope.Thread)
+public class ExpenseInsertBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int SEED_ROWS = 1000;
+
+    private Connection connection;
+    private PreparedStatement insertExpense;
+    private PreparedStatement updateDaily;
+    private PreparedStatement insertDaily;
+    private Random random;
+    private long today;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException, SQLException {
+        connection = BenchmarkDatabase.create();
+        BenchmarkDatabase.seed(connection, SEED_ROWS, 42);
+        insertExpense = connection.prepareStatement(BenchmarkDatabase.SQL_INSERT_EXPENSE);
+        updateDaily = connection.prepareStatement(BenchmarkDatabase.SQL_UPDATE_DAILY);
+        insertDaily = connection.prepareStatement(BenchmarkDatabase.SQL_INSERT_DAILY);
+        random = new Random(7);
+        today = CalendarPeriods.current().getToday();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws SQLException {
+        insertExpense.close();
+        updateDaily.close();
+        insertDaily.close();
+        BenchmarkDatabase.close(connection);
+    }
+
+    // createExpense: one expense per transaction
+    @Benchmark
+    public void insertOne() throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            long date = randomDate();
+            int categoryId = 1 + random.nextInt(BenchmarkDatabase.CATEGORY_COUNT);
+            long amount = 100 + random.nextInt(20000);
+            BenchmarkDatabase.bindExpense(insertExpense, categoryId, amount,
+                BenchmarkDatabase.description(random), date);
+            insertExpense.executeUpdate();
+            applyDelta(CalendarPeriods.toEpochDay(date), categoryId, amount, 1);
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // createExpenses: a batch in one transaction, rollup deltas summed per (day, category) first
+    @Benchmark
+    public void insertBatch() throws SQLException {
+        Map<Long, long[]> dailyTotals = new HashMap<>();
+        connection.setAutoCommit(false);
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                long date = randomDate();
+                int categoryId = 1 + random.nextInt(BenchmarkDatabase.CATEGORY_COUNT);
+                long amount = 100 + random.nextInt(20000);
+                BenchmarkDatabase.bindExpense(insertExpense, categoryId, amount,
+                    BenchmarkDatabase.description(random), date);
+                insertExpense.executeUpdate();
+
+                long key = CalendarPeriods.toEpochDay(date) * BenchmarkDatabase.CATEGORY_COUNT + (categoryId - 1);
+                long[] total = dailyTotals.get(key);
+                if (total == null) {
+                    total = new long[2];
+                    dailyTotals.put(key, total);
+                }
+                total[0] += amount;
+                total[1]++;
+            }
+            for (Map.Entry<Long, long[]> entry : dailyTotals.entrySet()) {
+                long key = entry.getKey();
+                applyDelta(Math.floorDiv(key, BenchmarkDatabase.CATEGORY_COUNT),
+                    (int) Math.floorMod(key, BenchmarkDatabase.CATEGORY_COUNT) + 1,
+                    entry.getValue()[0], (int) entry.getValue()[1]);
+            }
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // DailyTotalsTable.applyDelta: update the row, insert it if there was none
+    private void applyDelta(long day, int categoryId, long amount, int count) throws SQLException {
+        BenchmarkDatabase.bindDaily(updateDaily, day, categoryId, amount, count);
+        if (updateDaily.executeUpdate() == 0) {
+            BenchmarkDatabase.bindDaily(insertDaily, day, categoryId, amount, count);
+            insertDaily.executeUpdate();
+        }
+    }
+
+    // Mostly recent dates, like expenses entered as they happen
+    private long randomDate() {
+        return CalendarPeriods.startOfDay(today - random.nextInt(30)) +
+            random.nextInt((int) BenchmarkDatabase.DAY_MILLIS);
+    }
+}
@@ -0,0 +1,68 @@
+package com.smartexpense.app.benchmark;
+
+import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.Money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cost of turning rows into Expense models, on top of stepping through the same rows
+public class ExpenseMappingBenchmark {
+
+    private static final String SQL_LIST =
+        "SELECT id, amount, category_id, description, date FROM expenses WHERE user_id = ?";
+
+    // Baseline: read every column of every row without building models
+    @Benchmark
+    public long readColumns(SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = prepare(db); ResultSet rows = query.executeQuery()) {
+            long checksum = 0;
+            while (rows.next()) {
+                String description = rows.getString(4);
+                checksum += rows.getInt(1) + rows.getLong(2) + rows.getInt(3) + rows.getLong(5) +
+                    (description != null ? description.length() : 0);
+            }
+            return checksum;
+        }
+    }
+
+    // ExpenseMapper: indices resolved once per result
+    @Benchmark
+    public List<Expense> mapResolvedColumns(SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = prepare(db)) {
+            return ExpenseRows.readAll(query.executeQuery(), new ArrayList<>(db.rows));
+        }
+    }
+
+    // Column looked up by name for every field of every row, as before RowMapper
+    @Benchmark
+    public List<Expense> mapColumnsByName(SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = prepare(db); ResultSet rows = query.executeQuery()) {
+            List<Expense> expenses = new ArrayList<>(db.rows);
+            while (rows.next()) {
+                int categoryId = rows.getInt(rows.findColumn("category_id"));
+                expenses.add(new Expense(
+                    rows.getInt(rows.findColumn("id")),
+                    BenchmarkDatabase.USER_ID,
+                    Money.ofMinorUnits(rows.getLong(rows.findColumn("amount"))),
+                    categoryId,
+                    ExpenseRows.categoryName(categoryId),
+                    rows.getString(rows.findColumn("description")),
+                    rows.getLong(rows.findColumn("date"))
+                ));
+            }
+            return expenses;
+        }
+    }
+
+    private static PreparedStatement prepare(SeededDatabase db) throws SQLException {
+        PreparedStatement query = db.connection.prepareStatement(SQL_LIST);
+        query.setInt(1, BenchmarkDatabase.USER_ID);
+        return query;
+    }
+}
@@ -0,0 +1,155 @@
+package com.smartexpense.app.benchmark;
+
+import com.smartexpense.app.model.CategoryTotal;
+import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.Money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// The read query shapes of ExpenseDao, from statement to models
+public class ExpenseQueryBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    // getExpensesPage: first page of the list, newest first
+    @Benchmark
+    public List<Expense> listFirstPage(SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = db.connection.prepareStatement(
+                "SELECT id, amount, category_id, description, date FROM expenses" +
+                " WHERE user_id = ? AND date <= ? AND (date < ? OR id < ?)" +
+                " ORDER BY date DESC, id DESC LIMIT " + PAGE_SIZE)) {
+            query.setInt(1, BenchmarkDatabase.USER_ID);
+            query.setLong(2, Long.MAX_VALUE);
+            query.setLong(3, Long.MAX_VALUE);
+            query.setInt(4, Integer.MAX_VALUE);
+            return ExpenseRows.readAll(query.executeQuery(), new ArrayList<>(PAGE_SIZE));
+        }
+    }
+
+    // searchExpenses: full-text prefix match, descriptions starting with the query first
+    @Benchmark
+    public List<Expense> search(SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = db.connection.prepareStatement(
+                "SELECT e.id, e.amount, e.category_id, e.description, e.date" +
+                " FROM expenses e JOIN expenses_fts f ON f.docid = e.id" +
+                " WHERE expenses_fts MATCH ? AND e.user_id = ?" +
+                " ORDER BY (e.description LIKE ? ESCAPE '\\') DESC, e.date DESC, e.id DESC")) {
+            query.setString(1, "coff*");
+            query.setInt(2, BenchmarkDatabase.USER_ID);
+            query.setString(3, "coff%");
+            return ExpenseRows.readAll(query.executeQuery(), new ArrayList<>());
+        }
+    }
+
+    // getMonthTotal: sum of this month's days in the rollup
+    @Benchmark
+    public long rangeSum(SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = db.connection.prepareStatement(
+                "SELECT IFNULL(SUM(total), 0) FROM expense_daily_totals" +
+                " WHERE user_id = ? AND day BETWEEN ? AND ?")) {
+            query.setInt(1, BenchmarkDatabase.USER_ID);
+            query.setLong(2, db.monthStart);
+            query.setLong(3, db.today);
+            return readLong(query);
+        }
+    }
+
+    // The same month summed from the expenses table through the covering index, for comparison
+    @Benchmark
+    public long rangeSumFromExpenses(SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = db.connection.prepareStatement(
+                "SELECT IFNULL(SUM(amount), 0) FROM expenses WHERE user_id = ? AND date BETWEEN ? AND ?")) {
+            query.setInt(1, BenchmarkDatabase.USER_ID);
+            query.setLong(2, db.monthStartMillis);
+            query.setLong(3, db.todayEndMillis);
+            return readLong(query);
+        }
+    }
+
+    // getCategoryTotals over this month
+    @Benchmark
+    public List<CategoryTotal> categoryTotalsThisMonth(SeededDatabase db) throws SQLException {
+        return categoryTotals(db, db.monthStart, db.today);
+    }
+
+    // getCategoryTotals over the whole history
+    @Benchmark
+    public List<CategoryTotal> categoryTotalsAllTime(SeededDatabase db) throws SQLException {
+        return categoryTotals(db, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // getTotalsByBucket with months: buckets computed in SQL from the rollup
+    @Benchmark
+    public long totalsByMonth(SeededDatabase db) throws SQLException {
+        try (PreparedStatement query = db.connection.prepareStatement(
+                "SELECT CAST(julianday(day * 86400, 'unixepoch', 'start of month') - 2440587.5 AS INTEGER)," +
+                " SUM(total), SUM(count) FROM expense_daily_totals" +
+                " WHERE user_id = ? AND day BETWEEN ? AND ? GROUP BY 1 ORDER BY 1")) {
+            query.setInt(1, BenchmarkDatabase.USER_ID);
+            query.setLong(2, db.yearStart);
+            query.setLong(3, db.today);
+            long sum = 0;
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    sum += rows.getLong(1) + rows.getLong(2) + rows.getInt(3);
+                }
+            }
+            return sum;
+        }
+    }
+
+    // getDashboardSummary: today, week and month totals in one pass over the days they span
+    @Benchmark
+    public long dashboardSummary(SeededDatabase db) throws SQLException {
+        String sumOfDays = "SUM(CASE WHEN day BETWEEN ? AND ? THEN total ELSE 0 END)";
+        try (PreparedStatement query = db.connection.prepareStatement(
+                "SELECT " + sumOfDays + ", " + sumOfDays + ", " + sumOfDays +
+                " FROM expense_daily_totals WHERE user_id = ? AND day BETWEEN ? AND ?")) {
+            query.setLong(1, db.today);
+            query.setLong(2, db.today);
+            query.setLong(3, db.weekStart);
+            query.setLong(4, db.today);
+            query.setLong(5, db.monthStart);
+            query.setLong(6, db.today);
+            query.setInt(7, BenchmarkDatabase.USER_ID);
+            query.setLong(8, Math.min(db.weekStart, db.monthStart));
+            query.setLong(9, db.today);
+            try (ResultSet rows = query.executeQuery()) {
+                rows.next();
+                return rows.getLong(1) + rows.getLong(2) + rows.getLong(3);
+            }
+        }
+    }
+
+    private static List<CategoryTotal> categoryTotals(SeededDatabase db, long startDay, long endDay)
+            throws SQLException {
+        try (PreparedStatement query = db.connection.prepareStatement(
+                "SELECT category_id, SUM(total), SUM(count) FROM expense_daily_totals" +
+                " WHERE user_id = ? AND day BETWEEN ? AND ? GROUP BY category_id")) {
+            query.setInt(1, BenchmarkDatabase.USER_ID);
+            query.setLong(2, startDay);
+            query.setLong(3, endDay);
+            List<CategoryTotal> categoryTotals = new ArrayList<>(BenchmarkDatabase.CATEGORY_COUNT);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    int categoryId = rows.getInt(1);
+                    categoryTotals.add(new CategoryTotal(categoryId, ExpenseRows.categoryName(categoryId),
+                        Money.ofMinorUnits(rows.getLong(2)), rows.getInt(3)));
+                }
+            }
+            return categoryTotals;
+        }
+    }
+
+    private static long readLong(PreparedStatement query) throws SQLException {
+        try (ResultSet rows = query.executeQuery()) {
+            return rows.next() ? rows.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.smartexpense.app.benchmark;
+
+import com.smartexpense.app.model.Expense;
+import com.smartexpense.app.model.Money;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// ExpenseMapper over a JDBC result set: column indices resolved once, then one model per row
+final class ExpenseRows {
+
+    private ExpenseRows() {
+    }
+
+    // Map every row of a LIST_PROJECTION result into the list, then close it
+    static List<Expense> readAll(ResultSet rows, List<Expense> into) throws SQLException {
+        try {
+            int idIndex = rows.findColumn("id");
+            int amountIndex = rows.findColumn("amount");
+            int categoryIndex = rows.findColumn("category_id");
+            int descriptionIndex = rows.findColumn("description");
+            int dateIndex = rows.findColumn("date");
+            while (rows.next()) {
+                int categoryId = rows.getInt(categoryIndex);
+                into.add(new Expense(
+                    rows.getInt(idIndex),
+                    BenchmarkDatabase.USER_ID,
+                    Money.ofMinorUnits(rows.getLong(amountIndex)),
+                    categoryId,
+                    categoryName(categoryId),
+                    rows.getString(descriptionIndex),
+                    rows.getLong(dateIndex)
+                ));
+            }
+        } finally {
+            rows.close();
+        }
+        return into;
+    }
+
+    // Stands in for CategoryRegistry.getName, a lookup in memory
+    static String categoryName(int categoryId) {
+        return categoryId >= 1 && categoryId <= BenchmarkDatabase.CATEGORY_COUNT ?
+            BenchmarkDatabase.CATEGORY_NAMES[categoryId - 1] : null;
+    }
+}
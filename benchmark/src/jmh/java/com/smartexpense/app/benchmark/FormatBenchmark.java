@@ -0,0 +1,100 @@
+package com.smartexpense.app.benchmark;
+
+import com.smartexpense.app.model.Money;
+import com.smartexpense.app.utils.CalendarPeriods;
+import com.smartexpense.app.utils.FormatUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+// FormatUtils and CalendarPeriods as list rows and charts call them, one value per row
+@State(Scope.Thread)
+public class FormatBenchmark {
+
+    // Values cycled through, a power of two
+    private static final int VALUES = 1024;
+
+    private final Money[] amounts = new Money[VALUES];
+    // Timestamps within a few days, as on one screen of the list
+    private final long[] recentDates = new long[VALUES];
+    // Timestamps over two years, most miss the per-day memo
+    private final long[] spreadDates = new long[VALUES];
+    private final StringBuffer buffer = new StringBuffer(24);
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < VALUES; i++) {
+            amounts[i] = Money.ofMinorUnits(100 + random.nextInt(2000000));
+            recentDates[i] = now - random.nextInt(3 * (int) CalendarPeriods.DAY_MILLIS);
+            spreadDates[i] = now - (long) random.nextInt(730) * CalendarPeriods.DAY_MILLIS;
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (VALUES - 1);
+    }
+
+    @Benchmark
+    public String formatCurrency() {
+        return FormatUtils.formatCurrency(amounts[next()]);
+    }
+
+    // Baseline: the formatCurrency from before formatters were kept per thread
+    @Benchmark
+    public String formatCurrencyNewFormatter() {
+        return NumberFormat.getCurrencyInstance(Locale.US).format(amounts[next()].toBigDecimal());
+    }
+
+    @Benchmark
+    public int formatCurrencyIntoBuffer() {
+        buffer.setLength(0);
+        FormatUtils.formatCurrency(amounts[next()], buffer);
+        return buffer.length();
+    }
+
+    // Money.appendPlain, the exporter's amount format
+    @Benchmark
+    public int appendPlainAmount() {
+        StringBuilder builder = new StringBuilder(24);
+        Money.appendPlain(builder, amounts[next()].getMinorUnits());
+        return builder.length();
+    }
+
+    @Benchmark
+    public String formatDateRecent() {
+        return FormatUtils.formatDate(recentDates[next()]);
+    }
+
+    @Benchmark
+    public String formatDateSpread() {
+        return FormatUtils.formatDate(spreadDates[next()]);
+    }
+
+    // Baseline: the formatDate from before day strings were remembered
+    @Benchmark
+    public String formatDateNewFormatter() {
+        return new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault()).format(new Date(recentDates[next()]));
+    }
+
+    @Benchmark
+    public String formatDateTime() {
+        return FormatUtils.formatDateTime(recentDates[next()]);
+    }
+
+    // Day number of a timestamp, the rollup key computed for every write and export row
+    @Benchmark
+    public long toEpochDay() {
+        return CalendarPeriods.toEpochDay(spreadDates[next()]);
+    }
+}
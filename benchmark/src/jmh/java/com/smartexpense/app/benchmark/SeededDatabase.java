@@ -0,0 +1,54 @@
+package com.smartexpense.app.benchmark;
+
+import com.smartexpense.app.utils.CalendarPeriods;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// A read-only database with a user's expense history, shared by the threads of one benchmark
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    // From a new user to a history large enough that full scans dominate
+    @Param({"1000", "20000", "100000"})
+    public int rows;
+
+    // Database file, for benchmarks that open connections of their own
+    String path;
+    Connection connection;
+    // Day numbers and timestamps of the ranges the app queries
+    long today;
+    long weekStart;
+    long monthStart;
+    long yearStart;
+    long monthStartMillis;
+    long todayEndMillis;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        path = BenchmarkDatabase.createFile();
+        connection = BenchmarkDatabase.create(path);
+        BenchmarkDatabase.seed(connection, rows, 42);
+
+        CalendarPeriods.Periods periods = CalendarPeriods.current();
+        today = periods.getToday();
+        weekStart = periods.getWeekStart();
+        monthStart = periods.getMonthStart();
+        yearStart = periods.getYearStart();
+        monthStartMillis = CalendarPeriods.startOfDay(monthStart);
+        todayEndMillis = periods.getDayEndMillis();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        BenchmarkDatabase.close(connection);
+    }
+}
@@ -0,0 +1,54 @@
+package com.smartexpense.app.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// What StatementCache saves: getMonthTotal through one compiled statement reused for every call,
+// against compiling it on every call as rawQuery does
+@State(Scope.Thread)
+public class StatementCacheBenchmark {
+
+    private static final String SQL_TOTAL_BY_DAY_RANGE =
+        "SELECT IFNULL(SUM(total), 0) FROM expense_daily_totals WHERE user_id = ? AND day BETWEEN ? AND ?";
+
+    private PreparedStatement cached;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase db) throws SQLException {
+        cached = db.connection.prepareStatement(SQL_TOTAL_BY_DAY_RANGE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        cached.close();
+    }
+
+    @Benchmark
+    public long monthTotalCachedStatement(SeededDatabase db) throws SQLException {
+        return monthTotal(cached, db);
+    }
+
+    @Benchmark
+    public long monthTotalPreparedPerCall(SeededDatabase db) throws SQLException {
+        try (PreparedStatement statement = db.connection.prepareStatement(SQL_TOTAL_BY_DAY_RANGE)) {
+            return monthTotal(statement, db);
+        }
+    }
+
+    private static long monthTotal(PreparedStatement statement, SeededDatabase db) throws SQLException {
+        statement.setInt(1, BenchmarkDatabase.USER_ID);
+        statement.setLong(2, db.monthStart);
+        statement.setLong(3, db.today);
+        try (ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? rows.getLong(1) : 0;
+        }
+    }
+}